@@ -0,0 +1,106 @@
+package com.github.karsaig.approvalcrest;
+
+import static java.lang.reflect.Modifier.isFinal;
+import static java.lang.reflect.Modifier.isStatic;
+import static org.apache.commons.lang3.ClassUtils.isPrimitiveOrWrapper;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Proves from the declared field types alone that no instance of a class can take part in a circular reference, so
+ * {@link CyclicReferenceDetector} does not have to walk its instances.
+ * <p>
+ * A class is acyclic if every instance field, including inherited ones, holds a value {@link CyclicReferenceDetector}
+ * does not look into (primitives and their wrappers, Strings, Classes, enums, arrays and java.time values), an instance
+ * of a final acyclic class, or a {@link Collection} or {@link Map} whose type arguments are such types. Fields of type
+ * {@link Object}, interfaces, non-final classes, type variables, wildcards, raw collections and types which reach
+ * themselves again cannot be proven acyclic, and the instances of the class are walked instead.
+ */
+final class AcyclicTypes {
+    private static final String JAVA_TIME_PACKAGE = "java.time.";
+
+    private static final ClassValue<Boolean> ACYCLIC = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return new AcyclicTypes().isAcyclicClass(type);
+        }
+    };
+
+    private final Map<Class<?>, Boolean> results = new HashMap<>();
+
+    private AcyclicTypes() {
+    }
+
+    /**
+     * @return true if instances of the given class can not have circular references
+     */
+    static boolean isAcyclic(Class<?> type) {
+        return ACYCLIC.get(type);
+    }
+
+    /**
+     * Classes on the current path of the analysis are mapped to false, so reaching one of them again, a back-edge of
+     * the type graph, fails the proof.
+     */
+    private boolean isAcyclicClass(Class<?> type) {
+        if (isLeaf(type)) {
+            return true;
+        }
+        if (Iterable.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)) {
+            return false;
+        }
+        Boolean result = results.get(type);
+        if (result != null) {
+            return result;
+        }
+        results.put(type, false);
+        result = haveAcyclicFields(type);
+        results.put(type, result);
+        return result;
+    }
+
+    private boolean haveAcyclicFields(Class<?> type) {
+        for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (!isStatic(field.getModifiers()) && !isAcyclicValue(field.getGenericType())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean isAcyclicValue(Type type) {
+        if (type instanceof Class) {
+            Class<?> clazz = (Class<?>) type;
+            return isLeaf(clazz) || isFinal(clazz.getModifiers()) && isAcyclicClass(clazz);
+        }
+        if (type instanceof ParameterizedType) {
+            Class<?> rawType = (Class<?>) ((ParameterizedType) type).getRawType();
+            if (!Collection.class.isAssignableFrom(rawType) && !Map.class.isAssignableFrom(rawType)) {
+                return isAcyclicValue(rawType);
+            }
+            for (Type typeArgument : ((ParameterizedType) type).getActualTypeArguments()) {
+                if (!isAcyclicValue(typeArgument)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isLeaf(Class<?> type) {
+        return isPrimitiveOrWrapper(type)
+                || type == String.class
+                || type == Class.class
+                || type.isArray()
+                || Enum.class.isAssignableFrom(type)
+                || type.getName().startsWith(JAVA_TIME_PACKAGE);
+    }
+}
@@ -9,62 +9,100 @@
  */
 package com.github.karsaig.approvalcrest;
 
-import static java.util.Arrays.asList;
+import static java.lang.invoke.MethodType.methodType;
+import static java.lang.reflect.Modifier.isStatic;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Field;
-import java.util.Collection;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 
 /**
  * Returns the object corresponding to the path specified
+ * <p>
+ * The getter of every field name is looked up once per class and kept as a {@link MethodHandle}, so repeated lookups
+ * of the same paths cost about as much as reading the fields directly.
  */
 public class BeanFinder {
 
-    private final static String PATH_REGEX = Pattern.quote(".");
+    private final static Pattern PATH_SEPARATOR = Pattern.compile(Pattern.quote("."));
+    private final static MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private final static ClassValue<ConcurrentMap<String, MethodHandle>> FIELD_GETTERS = new ClassValue<ConcurrentMap<String, MethodHandle>>() {
+        @Override
+        protected ConcurrentMap<String, MethodHandle> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
 
     public static Object findBeanAt(String fieldPath, Object object) {
         try {
-            return findBeanAt(asList(fieldPath.split(PATH_REGEX)), object);
+            return findBeanAt(PATH_SEPARATOR.split(fieldPath), object);
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException(fieldPath + " does not exist");
         }
     }
 
-    private static Object findBeanAt(List<String> fields, Object object) {
-        if (object == null) {
-            throw new PathNullPointerException(fields.get(0));
-        }
-        for (Field field : getEveryField(object.getClass())) {
-            field.setAccessible(true);
-            if (headOf(fields).equals(field.getName())) {
-                try {
-                    if (fields.size() == 1) {
-                        return field.get(object);
-                    } else {
-                        return findBeanAt(fields.subList(1, fields.size()), field.get(object));
-                    }
-                } catch (IllegalAccessException e) {
-                }
+    private static Object findBeanAt(String[] fields, Object object) {
+        Object current = object;
+        for (String field : fields) {
+            if (current == null) {
+                throw new PathNullPointerException(field);
             }
+            current = get(getterOf(current.getClass(), field), current);
         }
+        return current;
+    }
 
-        throw new IllegalArgumentException();
+    private static Object get(MethodHandle getter, Object object) {
+        try {
+            return (Object) getter.invokeExact(object);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
     }
 
-    private static String headOf(Collection<String> paths) {
-        return paths.iterator().next();
+    private static MethodHandle getterOf(Class<?> type, String fieldName) {
+        ConcurrentMap<String, MethodHandle> getters = FIELD_GETTERS.get(type);
+        MethodHandle getter = getters.get(fieldName);
+        if (getter == null) {
+            getter = getters.computeIfAbsent(fieldName, name -> createGetter(findField(type, name)));
+        }
+        return getter;
     }
 
-    private static List<Field> getEveryField(Class<?> type) {
-        List<Field> result = new LinkedList<>();
+    /**
+     * Returns the first field with the given name, searching from the class up its super classes.
+     */
+    private static Field findField(Class<?> type, String fieldName) {
         for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
             for (Field currentField : clazz.getDeclaredFields()) {
-                result.add(currentField);
+                if (fieldName.equals(currentField.getName())) {
+                    return currentField;
+                }
+            }
+        }
+        throw new IllegalArgumentException();
+    }
+
+    /**
+     * Returns a getter taking the bean and returning the value of the field as an {@link Object}, which ignores the
+     * bean for static fields.
+     */
+    private static MethodHandle createGetter(Field field) {
+        field.setAccessible(true);
+        try {
+            MethodHandle getter = LOOKUP.unreflectGetter(field);
+            if (isStatic(field.getModifiers())) {
+                return MethodHandles.dropArguments(getter.asType(methodType(Object.class)), 0, Object.class);
             }
+            return getter.asType(methodType(Object.class, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
         }
-        return result;
     }
 }
@@ -15,9 +15,14 @@ import static org.apache.commons.lang3.ClassUtils.isPrimitiveOrWrapper;
 
 import java.io.Closeable;
 import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -28,11 +33,36 @@ import org.hamcrest.Matcher;
 
 /**
  * Detects classes with fields that have circular reference and returns a set of those classes.
+ * <p>
+ * The object graph is walked with an explicit stack, so deep graphs like long linked lists do not overflow the call
+ * stack, and the fields of every class are looked up and made accessible only once. Objects whose class is proven
+ * acyclic by {@link AcyclicTypes} are not walked at all.
  */
 public class CyclicReferenceDetector {
 
-    private Set<Object> nodesInPaths = newSetFromMap(new IdentityHashMap<>());
-    private Set<Object> objectsWithCircularReferences = newSetFromMap(new IdentityHashMap<>());
+    private static final ClassValue<Field[]> INSTANCE_FIELDS = new ClassValue<Field[]>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Field field : type.getDeclaredFields()) {
+                if (!isStatic(field.getModifiers())) {
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+            return fields.toArray(new Field[0]);
+        }
+    };
+
+    private final Set<Object> nodesInPaths = newSetFromMap(new IdentityHashMap<>());
+    private final Set<Object> objectsWithCircularReferences = newSetFromMap(new IdentityHashMap<>());
+    private final Deque<Node> path = new ArrayDeque<>();
+    private final Map<Class<?>, Field[]> fieldsToCheck = new HashMap<>();
+    private final MatcherConfiguration matcherConfiguration;
+
+    private CyclicReferenceDetector(MatcherConfiguration matcherConfiguration) {
+        this.matcherConfiguration = matcherConfiguration;
+    }
 
     /**
      * Returns a set of classes that have circular reference.
@@ -42,10 +72,10 @@ public class CyclicReferenceDetector {
      * @return a {@link Set} of {@link Class}es.
      */
     public static Set<Class<?>> getClassesWithCircularReferences(Object object, MatcherConfiguration matcherConfiguration) {
-        CyclicReferenceDetector cyclicReferenceDetector = new CyclicReferenceDetector();
+        CyclicReferenceDetector cyclicReferenceDetector = new CyclicReferenceDetector(matcherConfiguration);
 
-        if (object != null) {
-            cyclicReferenceDetector.detectCircularReferenceOnObject(object, matcherConfiguration);
+        if (object != null && !AcyclicTypes.isAcyclic(object.getClass())) {
+            cyclicReferenceDetector.detectCircularReferences(object);
         }
 
         return getClasses(cyclicReferenceDetector.objectsWithCircularReferences);
@@ -66,55 +96,35 @@ public class CyclicReferenceDetector {
     }
 
     /**
-     * Detects classes that have circular reference.
+     * Walks the object graph from the given root, visiting the children of the node on top of the path until every
+     * node has been left.
      *
-     * @param object the object to check if it has circular reference fields
-     * @param clazz  the class being used (necessary if we also checking super class as getDeclaredFields only returns
-     *               fields of a given class, but not its super class)
+     * @param root the object to check if it has circular reference fields
      */
-    private void detectCircularReferenceOnFields(Object object, Class<?> clazz, MatcherConfiguration matcherConfiguration) {
-        if (objectsWithCircularReferences.contains(object)) {
-            return;
-        }
-
-        for (Field field : clazz.getDeclaredFields()) {
-            field.setAccessible(true);
-            
-            if (!isStatic(field.getModifiers())) {
-                try {
-                    if (!isFieldnameIgnored(field, matcherConfiguration.getPatternsToIgnore())) {
-                        Object fieldValue = field.get(object);
-                        if (fieldValue != null) {
-                            detectCircularReferenceOnObject(fieldValue, matcherConfiguration);
-                        }
-                    }
-                } catch (IllegalAccessException e) {
-                    throw new RuntimeException(e);
-                }
-            }
-        }
-        detectCircularReferencesFromTheSuperClass(object, clazz, matcherConfiguration);
-    }
-
-    private boolean isFieldnameIgnored(Field field, List<Matcher<String>> patternsToIgnore) {
-        for (Matcher<String> matcher : patternsToIgnore) {
-            if (matcher.matches(field.getName())) {
-                return true;
+    private void detectCircularReferences(Object root) {
+        detectCircularReferenceOnObject(root);
+        while (!path.isEmpty()) {
+            Node node = path.peek();
+            Object child = node.nextChild();
+            if (child == null) {
+                path.pop();
+                node.leave();
+            } else {
+                detectCircularReferenceOnObject(child);
             }
         }
-        return false;
     }
 
     /**
-     * Detects circular reference on a given field.
-     * If a field is a {@link Iterable} or a {@link Map}, loops through the values and
-     * detects cycles.
+     * Detects circular reference on a given object, entering it into the current path if its fields or elements need
+     * to be checked.
+     * If the object is a {@link Iterable} or a {@link Map}, its values are checked, otherwise its fields.
      *
      * @param object the object to detect circular reference on
      */
-    @SuppressWarnings({"unchecked", "rawtypes"})
-    private void detectCircularReferenceOnObject(Object object, MatcherConfiguration matcherConfiguration) {
-        if (isIgnoredType(object, matcherConfiguration)) {
+    @SuppressWarnings("unchecked")
+    private void detectCircularReferenceOnObject(Object object) {
+        if (isIgnoredType(object)) {
             return;
         }
 
@@ -132,20 +142,18 @@ public class CyclicReferenceDetector {
 
         if (object instanceof Iterable && !treatAsNotIterable(object)) {
             nodesInPaths.add(object);
-            detectCircularReferenceFromObjectsContainedInAnIterable((Iterable) object, matcherConfiguration);
+            path.push(new ElementsNode(((Iterable<Object>) object).iterator()));
         } else if (object instanceof Map) {
             nodesInPaths.add(object);
-            detectCircularReferencesFromObjectsInAMap((Map) object, matcherConfiguration);
-        }
-
-        if (isValid) {
+            Map<Object, Object> map = (Map<Object, Object>) object;
+            path.push(new ElementsNode(map.values().iterator(), map.keySet()));
+        } else if (isValid) {
             nodesInPaths.add(object);
-            detectCircularReferenceOnFields(object, object.getClass(), matcherConfiguration);
-            nodesInPaths.remove(object);
+            path.push(new FieldsNode(object));
         }
     }
 
-    private boolean isIgnoredType(Object object, MatcherConfiguration matcherConfiguration) {
+    private boolean isIgnoredType(Object object) {
         for (Class<?> clazz : matcherConfiguration.getTypesToIgnore()) {
             if (clazz.isInstance(object)) {
                 return true;
@@ -166,40 +174,40 @@ public class CyclicReferenceDetector {
     }
 
     /**
-     * For objects with super classes, check for objects subject to circular reference in super class.
+     * Returns the fields declared by the given class (but not by its super class) which are checked for circular
+     * references: the instance fields whose names are not ignored.
      *
-     * @param object the object to check if it has circular reference
-     * @param clazz  Used to prevent stackOverFlow exception
+     * @param clazz the class declaring the fields
      */
-    private void detectCircularReferencesFromTheSuperClass(Object object, Class<?> clazz, MatcherConfiguration matcherConfiguration) {
-        Class<?> superclass = clazz.getSuperclass();
-
-        if (superclass != null && validateAnObject(object)) {
-            detectCircularReferenceOnFields(object, superclass, matcherConfiguration);
+    private Field[] getFieldsToCheck(Class<?> clazz) {
+        Field[] fields = fieldsToCheck.get(clazz);
+        if (fields == null) {
+            fields = withoutIgnoredFieldnames(INSTANCE_FIELDS.get(clazz), matcherConfiguration.getPatternsToIgnore());
+            fieldsToCheck.put(clazz, fields);
         }
+        return fields;
     }
 
-    /**
-     * Detects circular references on {@link Map}s, i.e HashMap, TreeMap, etc.
-     *
-     * @param map the {@link Map} with objects to checks for cyclic references on
-     */
-    private void detectCircularReferencesFromObjectsInAMap(Map<Object, Object> map, MatcherConfiguration matcherConfiguration) {
-        detectCircularReferenceFromObjectsContainedInAnIterable(map.values(), matcherConfiguration);
-        detectCircularReferenceFromObjectsContainedInAnIterable(map.keySet(), matcherConfiguration);
+    private static Field[] withoutIgnoredFieldnames(Field[] fields, List<Matcher<String>> patternsToIgnore) {
+        if (patternsToIgnore.isEmpty()) {
+            return fields;
+        }
+        List<Field> result = new ArrayList<>(fields.length);
+        for (Field field : fields) {
+            if (!isFieldnameIgnored(field, patternsToIgnore)) {
+                result.add(field);
+            }
+        }
+        return result.toArray(new Field[0]);
     }
 
-    /**
-     * Detects circular references on {@link Iterable}s, i.e {@link Collection}s.
-     *
-     * @param iterable the object to iterate through.
-     */
-    private void detectCircularReferenceFromObjectsContainedInAnIterable(Iterable<Object> iterable, MatcherConfiguration matcherConfiguration) {
-        for (Object elementInCollection : iterable) {
-            if (elementInCollection != null) {
-                detectCircularReferenceOnObject(elementInCollection, matcherConfiguration);
+    private static boolean isFieldnameIgnored(Field field, List<Matcher<String>> patternsToIgnore) {
+        for (Matcher<String> matcher : patternsToIgnore) {
+            if (matcher.matches(field.getName())) {
+                return true;
             }
         }
+        return false;
     }
 
     /**
@@ -218,4 +226,107 @@ public class CyclicReferenceDetector {
                 && !(object instanceof Map)
                 && !(object instanceof Enum);
     }
-}
\ No newline at end of file
+
+    /**
+     * An object in the current path, handing out the objects it references one at a time.
+     */
+    private interface Node {
+
+        /**
+         * @return the next non-null object referenced by this node, or null if all of them have been handed out
+         */
+        Object nextChild();
+
+        void leave();
+    }
+
+    /**
+     * The elements of an {@link Iterable} or the values, then the keys of a {@link Map}, i.e HashMap, TreeMap, etc.
+     * Collections stay in the path once entered, so each of them is only checked once.
+     */
+    private static final class ElementsNode implements Node {
+        private Iterator<Object> elements;
+        private Collection<Object> next;
+
+        private ElementsNode(Iterator<Object> elements) {
+            this(elements, null);
+        }
+
+        private ElementsNode(Iterator<Object> elements, Collection<Object> next) {
+            this.elements = elements;
+            this.next = next;
+        }
+
+        @Override
+        public Object nextChild() {
+            while (true) {
+                while (elements.hasNext()) {
+                    Object element = elements.next();
+                    if (element != null) {
+                        return element;
+                    }
+                }
+                if (next == null) {
+                    return null;
+                }
+                elements = next.iterator();
+                next = null;
+            }
+        }
+
+        @Override
+        public void leave() {
+        }
+    }
+
+    /**
+     * The field values of an object, from its own class up to {@link Object}. Once the object is found to have a
+     * circular reference, the fields of its remaining super classes are not checked.
+     */
+    private final class FieldsNode implements Node {
+        private final Object object;
+        private Class<?> clazz;
+        private Field[] fields;
+        private int index;
+
+        private FieldsNode(Object object) {
+            this.object = object;
+            this.clazz = object.getClass();
+        }
+
+        @Override
+        public Object nextChild() {
+            while (clazz != null) {
+                if (fields == null) {
+                    if (objectsWithCircularReferences.contains(object)) {
+                        return null;
+                    }
+                    fields = getFieldsToCheck(clazz);
+                    index = 0;
+                }
+                while (index < fields.length) {
+                    Object fieldValue = getFieldValue(fields[index++]);
+                    if (fieldValue != null) {
+                        return fieldValue;
+                    }
+                }
+                clazz = clazz.getSuperclass();
+                fields = null;
+            }
+            return null;
+        }
+
+        private Object getFieldValue(Field field) {
+            try {
+                return field.get(object);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void leave() {
+            nodesInPaths.remove(object);
+        }
+    }
+}
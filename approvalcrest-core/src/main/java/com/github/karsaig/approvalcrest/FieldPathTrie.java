@@ -0,0 +1,98 @@
+package com.github.karsaig.approvalcrest;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Field paths compiled into a tree of their segments, so all of them can be followed in a single traversal of the Json
+ * tree. Arrays are transparent: a node applies to every element of an array.
+ */
+final class FieldPathTrie {
+    private static final String PATH_SEPARATOR_PATTERN = Pattern.quote(".");
+
+    private final Map<String, FieldPathTrie> children = new HashMap<>();
+    private boolean terminal;
+    private String path;
+    private FieldPathTrie terminalChild;
+
+    private FieldPathTrie() {
+    }
+
+    /**
+     * Compiles the paths of the fields to ignore, splitting them the same way as {@link FieldsIgnorer} always did.
+     *
+     * @return the root of the paths, or null if there are none
+     */
+    static FieldPathTrie ofPathsToIgnore(Set<String> paths) {
+        if (paths.isEmpty()) {
+            return null;
+        }
+        FieldPathTrie root = new FieldPathTrie();
+        for (String path : paths) {
+            FieldPathTrie current = root;
+            String[] segments = path.split(PATH_SEPARATOR_PATTERN);
+            if (segments.length == 0) {
+                segments = new String[]{path};
+            }
+            for (int i = 0; i < segments.length - 1; i++) {
+                current = current.children.computeIfAbsent(segments[i], k -> new FieldPathTrie());
+            }
+            FieldPathTrie last = current.children.computeIfAbsent(segments[segments.length - 1], k -> new FieldPathTrie());
+            last.terminal = true;
+            last.path = path;
+            if (current.terminalChild == null) {
+                current.terminalChild = last;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Compiles the paths of the arrays to sort, splitting them the same way as {@link FieldsIgnorer} always did.
+     *
+     * @return the root of the paths, or null if there are none
+     */
+    static FieldPathTrie ofPathsToSort(Set<String> paths) {
+        if (paths.isEmpty()) {
+            return null;
+        }
+        FieldPathTrie root = new FieldPathTrie();
+        for (String path : paths) {
+            FieldPathTrie current = root;
+            String remaining = path;
+            int indexOfNextLevel;
+            while ((indexOfNextLevel = remaining.indexOf('.')) >= 0) {
+                current = current.children.computeIfAbsent(remaining.substring(0, indexOfNextLevel), k -> new FieldPathTrie());
+                remaining = remaining.substring(indexOfNextLevel + 1);
+            }
+            current = current.children.computeIfAbsent(remaining, k -> new FieldPathTrie());
+            current.terminal = true;
+            current.path = path;
+        }
+        return root;
+    }
+
+    static FieldPathTrie child(FieldPathTrie node, String fieldName) {
+        return node == null ? null : node.children.get(fieldName);
+    }
+
+    static boolean isTerminal(FieldPathTrie node) {
+        return node != null && node.terminal;
+    }
+
+    /**
+     * Fails if a path ends right below the node, as a value that is not an object has no fields to ignore.
+     */
+    static void checkNoPathEndsBelow(FieldPathTrie node) {
+        if (node != null && node.terminalChild != null) {
+            throw new IllegalArgumentException(node.terminalChild.path + " does not exist", new IllegalArgumentException());
+        }
+    }
+
+    Map<String, FieldPathTrie> children() {
+        return Collections.unmodifiableMap(children);
+    }
+}
@@ -8,6 +8,10 @@ public class FileMatcherConfig {
     private static final String BUILD_INDEX_NAME = "buildFileIndex";
     private static final String APPROVED_DIRECTORY_NAME = "useApprovedDirectory";
     private static final String SORT_INPUT_FILE = "sortInputFile";
+    private static final String STREAMING_NAME = "jsonMatcherStreaming";
+    private static final String PACKED_STORE_NAME = "usePackedApprovalStore";
+    private static final String IN_MEMORY_STORE_NAME = "useInMemoryApprovalStore";
+    private static final String SHARED_CONTENT_NAME = "useSharedApprovalContent";
 
 
     private final boolean overwriteInPlaceEnabled;
@@ -15,6 +19,10 @@ public class FileMatcherConfig {
     private final boolean buildIndex;
     private final boolean approvedDirectory;
     private final boolean sortInputFile;
+    private final boolean streamingEnabled;
+    private final boolean packedStoreEnabled;
+    private final boolean inMemoryStoreEnabled;
+    private final boolean sharedContentEnabled;
 
     public FileMatcherConfig() {
         overwriteInPlaceEnabled = getBooleanProperty(UPDATE_IN_PLACE_OLD_NAME) || getBooleanProperty(UPDATE_IN_PLACE_NAME);
@@ -22,14 +30,38 @@ public class FileMatcherConfig {
         buildIndex = getBooleanProperty(BUILD_INDEX_NAME);
         approvedDirectory = getBooleanProperty(APPROVED_DIRECTORY_NAME);
         sortInputFile = getBooleanProperty(SORT_INPUT_FILE);
+        streamingEnabled = getBooleanProperty(STREAMING_NAME);
+        packedStoreEnabled = getBooleanProperty(PACKED_STORE_NAME);
+        inMemoryStoreEnabled = getBooleanProperty(IN_MEMORY_STORE_NAME);
+        sharedContentEnabled = getBooleanProperty(SHARED_CONTENT_NAME);
     }
 
     public FileMatcherConfig(boolean overwriteInPlaceEnabled, boolean passOnCreateEnabled, boolean buildIndex, boolean approvedDirectory, boolean sortInputFile) {
-        this.overwriteInPlaceEnabled = overwriteInPlaceEnabled;
-        this.passOnCreateEnabled = passOnCreateEnabled;
-        this.buildIndex = buildIndex;
-        this.approvedDirectory = approvedDirectory;
-        this.sortInputFile = sortInputFile;
+        this(builder()
+                .overwriteInPlace(overwriteInPlaceEnabled)
+                .passOnCreate(passOnCreateEnabled)
+                .buildIndex(buildIndex)
+                .approvedDirectory(approvedDirectory)
+                .sortInputFile(sortInputFile));
+    }
+
+    private FileMatcherConfig(Builder builder) {
+        this.overwriteInPlaceEnabled = builder.overwriteInPlaceEnabled;
+        this.passOnCreateEnabled = builder.passOnCreateEnabled;
+        this.buildIndex = builder.buildIndex;
+        this.approvedDirectory = builder.approvedDirectory;
+        this.sortInputFile = builder.sortInputFile;
+        this.streamingEnabled = builder.streamingEnabled;
+        this.packedStoreEnabled = builder.packedStoreEnabled;
+        this.inMemoryStoreEnabled = builder.inMemoryStoreEnabled;
+        this.sharedContentEnabled = builder.sharedContentEnabled;
+    }
+
+    /**
+     * @return a builder of a configuration with every option disabled, regardless of the system properties
+     */
+    public static Builder builder() {
+        return new Builder();
     }
 
     private boolean getBooleanProperty(String key) {
@@ -51,4 +83,137 @@ public class FileMatcherConfig {
     public boolean isSortInputFile() {
         return sortInputFile;
     }
+
+    /**
+     * When enabled, the matchers record the test of each approved file in the
+     * {@link com.github.karsaig.approvalcrest.matcher.file.ApprovedFileIndex} of its directory.
+     *
+     * @return true if the approved file index is maintained
+     */
+    public boolean isBuildIndexEnabled() {
+        return buildIndex;
+    }
+
+    /**
+     * When enabled, the approved files are kept in the package directories of the test classes under
+     * {@link com.github.karsaig.approvalcrest.matcher.TestMetaInformation#getApprovedDirectory()} instead of next to
+     * the test sources, and approved files which are not on the file system are read from the classpath.
+     *
+     * @return true if the central approved directory is used
+     */
+    public boolean isApprovedDirectoryEnabled() {
+        return approvedDirectory;
+    }
+
+    /**
+     * When enabled, {@link com.github.karsaig.approvalcrest.matcher.JsonMatcher} streams the filtered JSON tree to the
+     * approved files instead of rendering it to an intermediate String.
+     *
+     * @return true if streaming serialization is enabled
+     */
+    public boolean isStreamingEnabled() {
+        return streamingEnabled;
+    }
+
+    /**
+     * When enabled, the approved files of a directory are stored together in a single pack file instead of one file
+     * per assertion. Approved files next to the pack, like renamed not approved files, are read as they are and are
+     * moved into it when they are overwritten.
+     *
+     * @return true if the packed approval store is used
+     */
+    public boolean isPackedStoreEnabled() {
+        return packedStoreEnabled;
+    }
+
+    /**
+     * When enabled, the approved and not approved files are written to a JVM wide
+     * {@link com.github.karsaig.approvalcrest.matcher.file.InMemoryApprovalStore} instead of the file system or the
+     * pack, which are only read, so a test run does not change any files. The approved file index is not written
+     * either.
+     *
+     * @return true if the files are written to memory only
+     */
+    public boolean isInMemoryStoreEnabled() {
+        return inMemoryStoreEnabled;
+    }
+
+    /**
+     * When enabled, identical approved files of a directory share their content, which is stored once by
+     * {@link com.github.karsaig.approvalcrest.matcher.file.ContentAddressedApprovalStore}, and is read and parsed once
+     * per JVM. The packed approval store takes precedence when both are enabled.
+     *
+     * @return true if the approved files share their content
+     */
+    public boolean isSharedContentEnabled() {
+        return sharedContentEnabled;
+    }
+
+    /**
+     * Builds a {@link FileMatcherConfig} option by option, every option is disabled unless it is set.
+     */
+    public static final class Builder {
+
+        private boolean overwriteInPlaceEnabled;
+        private boolean passOnCreateEnabled;
+        private boolean buildIndex;
+        private boolean approvedDirectory;
+        private boolean sortInputFile;
+        private boolean streamingEnabled;
+        private boolean packedStoreEnabled;
+        private boolean inMemoryStoreEnabled;
+        private boolean sharedContentEnabled;
+
+        private Builder() {
+        }
+
+        public Builder overwriteInPlace(boolean overwriteInPlaceEnabled) {
+            this.overwriteInPlaceEnabled = overwriteInPlaceEnabled;
+            return this;
+        }
+
+        public Builder passOnCreate(boolean passOnCreateEnabled) {
+            this.passOnCreateEnabled = passOnCreateEnabled;
+            return this;
+        }
+
+        public Builder buildIndex(boolean buildIndex) {
+            this.buildIndex = buildIndex;
+            return this;
+        }
+
+        public Builder approvedDirectory(boolean approvedDirectory) {
+            this.approvedDirectory = approvedDirectory;
+            return this;
+        }
+
+        public Builder sortInputFile(boolean sortInputFile) {
+            this.sortInputFile = sortInputFile;
+            return this;
+        }
+
+        public Builder streaming(boolean streamingEnabled) {
+            this.streamingEnabled = streamingEnabled;
+            return this;
+        }
+
+        public Builder packedStore(boolean packedStoreEnabled) {
+            this.packedStoreEnabled = packedStoreEnabled;
+            return this;
+        }
+
+        public Builder inMemoryStore(boolean inMemoryStoreEnabled) {
+            this.inMemoryStoreEnabled = inMemoryStoreEnabled;
+            return this;
+        }
+
+        public Builder sharedContent(boolean sharedContentEnabled) {
+            this.sharedContentEnabled = sharedContentEnabled;
+            return this;
+        }
+
+        public FileMatcherConfig build() {
+            return new FileMatcherConfig(this);
+        }
+    }
 }
@@ -0,0 +1,416 @@
+package com.github.karsaig.approvalcrest;
+
+import static com.github.karsaig.approvalcrest.FieldsIgnorer.MARKER;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+
+import org.hamcrest.Matcher;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * {@link JsonWriter} building the filtered and sorted Json tree directly from the serialisation events, so the
+ * unfiltered tree is never materialised. Ignored paths and fields matching the ignore patterns are dropped as the
+ * events arrive, object fields are ordered when the object is complete and arrays are sorted when they are complete,
+ * giving the same result as {@link NormalizationPlan#normalize} on the whole tree.
+ * <p>
+ * Fields serialised from Sets and Maps arrive with their name prefixed by {@link FieldsIgnorer#MARKER}. The prefix is
+ * removed from the tree and the fields are recorded in an identity side table instead, which is consulted when
+ * ordering arrays, so sorted arrays keep the order they had when the prefixed names were part of the tree.
+ */
+public class FilteringJsonTreeWriter extends JsonWriter {
+    private static final Comparator<Member> FIELD_NAME_ORDER = Comparator.comparing(member -> member.name);
+    private static final Slot REMOVED = new Slot(null, false, true, null, null, false);
+    private static final Set<String> NON_FINITE_NUMBERS = new HashSet<>(Arrays.asList("NaN", "Infinity", "-Infinity"));
+    private static final Writer UNWRITABLE_WRITER = new Writer() {
+        @Override
+        public void write(char[] buffer, int offset, int counter) {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void flush() {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void close() {
+            throw new AssertionError();
+        }
+    };
+
+    private final NormalizationPlan plan;
+    private final boolean nonFiniteNumbersAsStrings;
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    private final Map<JsonObject, Set<String>> unorderedFields = new IdentityHashMap<>();
+    private final SortKeys sortKeys = new SortKeys(unorderedFields);
+    private JsonElement product;
+
+    /**
+     * @param pathsToIgnore             field paths to leave out
+     * @param patternsToIgnore          field names to leave out
+     * @param pathsToSort               field paths of arrays to sort
+     * @param patternsToSort            field names of arrays to sort
+     * @param sortFile                  whether fields, and arrays selected by path or pattern, should be sorted
+     * @param nonFiniteNumbersAsStrings whether NaN and infinite numbers should be kept as strings, like they are after
+     *                                  parsing the serialised form
+     */
+    public FilteringJsonTreeWriter(Set<String> pathsToIgnore, List<Matcher<String>> patternsToIgnore, Set<String> pathsToSort,
+                                   List<Matcher<String>> patternsToSort, boolean sortFile, boolean nonFiniteNumbersAsStrings) {
+        this(new NormalizationPlan(pathsToIgnore, patternsToIgnore, pathsToSort, patternsToSort, sortFile), nonFiniteNumbersAsStrings);
+    }
+
+    /**
+     * @param plan                      the ignore and sort rules to apply
+     * @param nonFiniteNumbersAsStrings whether NaN and infinite numbers should be kept as strings, like they are after
+     *                                  parsing the serialised form
+     */
+    public FilteringJsonTreeWriter(NormalizationPlan plan, boolean nonFiniteNumbersAsStrings) {
+        super(UNWRITABLE_WRITER);
+        this.plan = plan;
+        this.nonFiniteNumbersAsStrings = nonFiniteNumbersAsStrings;
+        setStrictness(Strictness.LENIENT);
+    }
+
+    /**
+     * Returns the tree written so far.
+     */
+    public JsonElement get() {
+        if (!stack.isEmpty()) {
+            throw new IllegalStateException("Expected one JSON element but was " + stack);
+        }
+        return product == null ? JsonNull.INSTANCE : product;
+    }
+
+    @Override
+    public JsonWriter beginArray() throws IOException {
+        stack.push(new Frame(false, nextSlot()));
+        return this;
+    }
+
+    @Override
+    public JsonWriter endArray() throws IOException {
+        Frame frame = pop(false);
+        if (!frame.slot.dropped) {
+            if (frame.slot.sortArray) {
+                sortJsonArray(frame.array);
+            }
+            store(frame.slot, frame.array);
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter beginObject() throws IOException {
+        stack.push(new Frame(true, nextSlot()));
+        return this;
+    }
+
+    @Override
+    public JsonWriter endObject() throws IOException {
+        Frame frame = pop(true);
+        if (!frame.slot.dropped) {
+            if (plan.sortsFields()) {
+                frame.members.sort(FIELD_NAME_ORDER);
+            }
+            JsonObject object = new JsonObject();
+            Set<String> unordered = null;
+            for (Member member : frame.members) {
+                object.add(member.name, member.value);
+                if (member.unordered) {
+                    if (unordered == null) {
+                        unordered = new HashSet<>();
+                        unorderedFields.put(object, unordered);
+                    }
+                    unordered.add(member.name);
+                }
+            }
+            store(frame.slot, object);
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter name(String name) throws IOException {
+        Objects.requireNonNull(name, "name == null");
+        Frame frame = stack.peek();
+        if (frame == null || !frame.object || frame.pendingName != null) {
+            throw new IllegalStateException("Please begin an object before writing a name.");
+        }
+        frame.pendingUnordered = name.startsWith(MARKER);
+        frame.pendingName = frame.pendingUnordered ? name.substring(MARKER.length()) : name;
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        put(new JsonPrimitive(value));
+        return this;
+    }
+
+    /**
+     * Writes the raw Json value written by a type adapter as if its elements were written one by one, so the ignore and
+     * sort rules apply within it too. Null fields of the raw value are kept and non-finite numbers nested in it are
+     * read as strings, like they are after parsing the serialised form.
+     */
+    @Override
+    public JsonWriter jsonValue(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        String trimmed = value.trim();
+        if (NON_FINITE_NUMBERS.contains(trimmed)) {
+            return value(Double.valueOf(trimmed));
+        }
+        boolean serializeNulls = getSerializeNulls();
+        setSerializeNulls(true);
+        try {
+            write(JsonParser.parseString(value));
+        } finally {
+            setSerializeNulls(serializeNulls);
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter nullValue() throws IOException {
+        put(JsonNull.INSTANCE);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(boolean value) throws IOException {
+        put(new JsonPrimitive(value));
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Boolean value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        put(new JsonPrimitive(value));
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(float value) throws IOException {
+        return value(Float.valueOf(value));
+    }
+
+    @Override
+    public JsonWriter value(double value) throws IOException {
+        return value(Double.valueOf(value));
+    }
+
+    @Override
+    public JsonWriter value(long value) throws IOException {
+        put(new JsonPrimitive(value));
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Number value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        double doubleValue = value.doubleValue();
+        if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)) {
+            if (!isLenient()) {
+                throw new IllegalArgumentException("JSON forbids NaN and infinities: " + value);
+            }
+            if (nonFiniteNumbersAsStrings) {
+                put(new JsonPrimitive(value.toString()));
+                return this;
+            }
+        }
+        put(new JsonPrimitive(value));
+        return this;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!stack.isEmpty()) {
+            throw new IOException("Incomplete document");
+        }
+    }
+
+    /**
+     * Sorts the elements of an array written by this writer by their Json representation, in which the fields
+     * serialised from Sets and Maps still carry their {@link FieldsIgnorer#MARKER} prefix.
+     */
+    void sortJsonArray(JsonArray array) {
+        FieldsIgnorer.sortJsonArray(array, sortKeys);
+    }
+
+    private void write(JsonElement element) throws IOException {
+        if (element.isJsonNull()) {
+            nullValue();
+        } else if (element.isJsonPrimitive()) {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if (primitive.isBoolean()) {
+                value(primitive.getAsBoolean());
+            } else if (primitive.isNumber()) {
+                value(primitive.getAsNumber());
+            } else {
+                value(primitive.getAsString());
+            }
+        } else if (element.isJsonArray()) {
+            beginArray();
+            for (JsonElement child : element.getAsJsonArray()) {
+                write(child);
+            }
+            endArray();
+        } else {
+            beginObject();
+            for (Entry<String, JsonElement> member : element.getAsJsonObject().entrySet()) {
+                name(member.getKey());
+                write(member.getValue());
+            }
+            endObject();
+        }
+    }
+
+    private Frame pop(boolean object) {
+        Frame frame = stack.peek();
+        if (frame == null || frame.object != object || frame.pendingName != null) {
+            throw new IllegalStateException("Nesting problem.");
+        }
+        return stack.pop();
+    }
+
+    private void put(JsonElement value) {
+        Slot slot = nextSlot();
+        if (!value.isJsonNull()) {
+            FieldPathTrie.checkNoPathEndsBelow(slot.ignoreNode);
+        }
+        if (!slot.dropped) {
+            store(slot, value);
+        }
+    }
+
+    /**
+     * Works out where the next value goes and which rules apply to it, consuming the pending field name.
+     */
+    private Slot nextSlot() {
+        Frame parent = stack.peek();
+        if (parent == null) {
+            if (product != null) {
+                throw new IllegalStateException("JSON must have only one top-level value.");
+            }
+            return new Slot(null, false, false, plan.pathsToIgnore(), plan.pathsToSort(), false);
+        }
+        if (!parent.object) {
+            return new Slot(null, false, parent.slot.dropped, parent.slot.ignoreNode, parent.slot.sortNode, false);
+        }
+        String name = parent.pendingName;
+        if (name == null) {
+            throw new IllegalStateException("Expected a name but was a value.");
+        }
+        boolean unordered = parent.pendingUnordered;
+        parent.pendingName = null;
+
+        FieldPathTrie ignoreNode = FieldPathTrie.child(parent.slot.ignoreNode, name);
+        if (FieldPathTrie.isTerminal(ignoreNode)) {
+            return REMOVED;
+        }
+        boolean dropped = parent.slot.dropped || plan.ignoresField(name);
+        FieldPathTrie sortNode = FieldPathTrie.child(parent.slot.sortNode, name);
+        boolean sortArray = !dropped && (unordered || plan.sortsArray(name, sortNode));
+        return new Slot(name, unordered, dropped, ignoreNode, sortNode, sortArray);
+    }
+
+    private void store(Slot slot, JsonElement value) {
+        Frame parent = stack.peek();
+        if (parent == null) {
+            product = value;
+        } else if (parent.object) {
+            if (!value.isJsonNull() || getSerializeNulls()) {
+                parent.members.add(new Member(slot.name, slot.unordered, value));
+            }
+        } else {
+            parent.array.add(value);
+        }
+    }
+
+    private static final class Frame {
+        private final boolean object;
+        private final Slot slot;
+        private final List<Member> members;
+        private final JsonArray array;
+        private String pendingName;
+        private boolean pendingUnordered;
+
+        private Frame(boolean object, Slot slot) {
+            this.object = object;
+            this.slot = slot;
+            this.members = object && !slot.dropped ? new ArrayList<>() : null;
+            this.array = !object && !slot.dropped ? new JsonArray() : null;
+        }
+
+        @Override
+        public String toString() {
+            return object ? "object" : "array";
+        }
+    }
+
+    /**
+     * Position of a value in the tree together with the ignore and sort rules applying to it.
+     */
+    private static final class Slot {
+        private final String name;
+        private final boolean unordered;
+        private final boolean dropped;
+        private final FieldPathTrie ignoreNode;
+        private final FieldPathTrie sortNode;
+        private final boolean sortArray;
+
+        private Slot(String name, boolean unordered, boolean dropped, FieldPathTrie ignoreNode, FieldPathTrie sortNode, boolean sortArray) {
+            this.name = name;
+            this.unordered = unordered;
+            this.dropped = dropped;
+            this.ignoreNode = ignoreNode;
+            this.sortNode = sortNode;
+            this.sortArray = sortArray;
+        }
+    }
+
+    private static final class Member {
+        private final String name;
+        private final boolean unordered;
+        private final JsonElement value;
+
+        private Member(String name, boolean unordered, JsonElement value) {
+            this.name = name;
+            this.unordered = unordered;
+            this.value = value;
+        }
+    }
+}
@@ -157,4 +157,20 @@ public class MatcherConfiguration {
         pathsToSort.addAll(fieldPaths);
         return this;
     }
+
+    /**
+     * @return a new configuration holding the same settings, which can be changed without affecting this one
+     */
+    public MatcherConfiguration copy() {
+        MatcherConfiguration copy = new MatcherConfiguration();
+        copy.pathsToIgnore.addAll(pathsToIgnore);
+        copy.customMatchers.putAll(customMatchers);
+        copy.typesToIgnore.addAll(typesToIgnore);
+        copy.patternsToIgnore.addAll(patternsToIgnore);
+        copy.skipCircularReferenceCheck.clear();
+        copy.skipCircularReferenceCheck.addAll(skipCircularReferenceCheck);
+        copy.pathsToSort.addAll(pathsToSort);
+        copy.patternsToSort.addAll(patternsToSort);
+        return copy;
+    }
 }
@@ -0,0 +1,161 @@
+package com.github.karsaig.approvalcrest;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.hamcrest.Matcher;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * The ignore and sort rules of a {@link MatcherConfiguration}, compiled once and applied to a Json tree in a single
+ * post-order pass. Ignored paths and fields matching the ignore patterns are left out, fields are added to the objects
+ * in name order and the selected arrays are sorted once their elements are final, so the normalized tree is built
+ * directly instead of being edited in place by one pass per rule.
+ * <p>
+ * The result is the same as ignoring the paths first, then the patterns, then sorting the fields and finally the arrays.
+ */
+public class NormalizationPlan {
+    private final FieldPathTrie pathsToIgnore;
+    private final List<Matcher<String>> patternsToIgnore;
+    private final FieldPathTrie pathsToSort;
+    private final List<Matcher<String>> patternsToSort;
+    private final boolean sortFile;
+
+    /**
+     * @param pathsToIgnore    field paths to leave out
+     * @param patternsToIgnore field names to leave out
+     * @param pathsToSort      field paths of arrays to sort
+     * @param patternsToSort   field names of arrays to sort
+     * @param sortFile         whether fields, and arrays selected by path or pattern, should be sorted
+     */
+    public NormalizationPlan(Set<String> pathsToIgnore, List<Matcher<String>> patternsToIgnore, Set<String> pathsToSort,
+                             List<Matcher<String>> patternsToSort, boolean sortFile) {
+        this.pathsToIgnore = FieldPathTrie.ofPathsToIgnore(pathsToIgnore);
+        this.patternsToIgnore = patternsToIgnore;
+        this.pathsToSort = FieldPathTrie.ofPathsToSort(pathsToSort);
+        this.patternsToSort = patternsToSort;
+        this.sortFile = sortFile;
+    }
+
+    public static NormalizationPlan of(MatcherConfiguration matcherConfiguration, boolean sortFile) {
+        return new NormalizationPlan(matcherConfiguration.getPathsToIgnore(), matcherConfiguration.getPatternsToIgnore(),
+                matcherConfiguration.getPathsToSort(), matcherConfiguration.getPatternsToSort(), sortFile);
+    }
+
+    /**
+     * Builds the normalized copy of the tree, the input is left unchanged.
+     *
+     * @throws IllegalArgumentException if a path to ignore ends below a value that has no fields
+     */
+    public JsonElement normalize(JsonElement jsonElement) {
+        if (jsonElement == null) {
+            return null;
+        }
+        return normalize(jsonElement, pathsToIgnore, pathsToSort, new SortKeys());
+    }
+
+    FieldPathTrie pathsToIgnore() {
+        return pathsToIgnore;
+    }
+
+    FieldPathTrie pathsToSort() {
+        return pathsToSort;
+    }
+
+    boolean sortsFields() {
+        return sortFile;
+    }
+
+    boolean ignoresField(String fieldName) {
+        return anyMatches(patternsToIgnore, fieldName);
+    }
+
+    /**
+     * @param sortNode the paths to sort below the field, as reached through {@link FieldPathTrie#child}
+     */
+    boolean sortsArray(String fieldName, FieldPathTrie sortNode) {
+        return sortFile && (FieldPathTrie.isTerminal(sortNode) || anyMatches(patternsToSort, fieldName));
+    }
+
+    private JsonElement normalize(JsonElement jsonElement, FieldPathTrie ignoreNode, FieldPathTrie sortNode, SortKeys sortKeys) {
+        if (jsonElement.isJsonObject()) {
+            return normalizeObject(jsonElement.getAsJsonObject(), ignoreNode, sortNode, sortKeys);
+        }
+        if (jsonElement.isJsonArray()) {
+            JsonArray input = jsonElement.getAsJsonArray();
+            JsonArray result = new JsonArray(input.size());
+            for (JsonElement arrayElement : input) {
+                result.add(normalize(arrayElement, ignoreNode, sortNode, sortKeys));
+            }
+            return result;
+        }
+        if (!jsonElement.isJsonNull()) {
+            FieldPathTrie.checkNoPathEndsBelow(ignoreNode);
+        }
+        return jsonElement;
+    }
+
+    private JsonObject normalizeObject(JsonObject input, FieldPathTrie ignoreNode, FieldPathTrie sortNode, SortKeys sortKeys) {
+        Map<String, JsonElement> members = sortFile ? new TreeMap<>() : new LinkedHashMap<>();
+        for (Map.Entry<String, JsonElement> member : input.entrySet()) {
+            String fieldName = member.getKey();
+            FieldPathTrie childIgnoreNode = FieldPathTrie.child(ignoreNode, fieldName);
+            if (FieldPathTrie.isTerminal(childIgnoreNode)) {
+                continue;
+            }
+            if (ignoresField(fieldName)) {
+                checkPathsToIgnoreExist(member.getValue(), childIgnoreNode);
+                continue;
+            }
+            FieldPathTrie childSortNode = FieldPathTrie.child(sortNode, fieldName);
+            JsonElement value = normalize(member.getValue(), childIgnoreNode, childSortNode, sortKeys);
+            if (value.isJsonArray() && sortsArray(fieldName, childSortNode)) {
+                FieldsIgnorer.sortJsonArray(value.getAsJsonArray(), sortKeys);
+            }
+            members.put(fieldName, value);
+        }
+        JsonObject result = new JsonObject();
+        for (Map.Entry<String, JsonElement> member : members.entrySet()) {
+            result.add(member.getKey(), member.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Fields left out by a pattern are still checked against the paths to ignore, which used to be removed first.
+     */
+    private static void checkPathsToIgnoreExist(JsonElement jsonElement, FieldPathTrie ignoreNode) {
+        if (ignoreNode == null || jsonElement.isJsonNull()) {
+            return;
+        }
+        if (jsonElement.isJsonArray()) {
+            for (JsonElement arrayElement : jsonElement.getAsJsonArray()) {
+                checkPathsToIgnoreExist(arrayElement, ignoreNode);
+            }
+        } else if (jsonElement.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> member : jsonElement.getAsJsonObject().entrySet()) {
+                FieldPathTrie childIgnoreNode = FieldPathTrie.child(ignoreNode, member.getKey());
+                if (!FieldPathTrie.isTerminal(childIgnoreNode)) {
+                    checkPathsToIgnoreExist(member.getValue(), childIgnoreNode);
+                }
+            }
+        } else {
+            FieldPathTrie.checkNoPathEndsBelow(ignoreNode);
+        }
+    }
+
+    private static boolean anyMatches(List<Matcher<String>> matchers, String fieldName) {
+        for (Matcher<String> matcher : matchers) {
+            if (matcher.matches(fieldName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
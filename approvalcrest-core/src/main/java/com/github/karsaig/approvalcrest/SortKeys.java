@@ -0,0 +1,199 @@
+package com.github.karsaig.approvalcrest;
+
+import static com.github.karsaig.approvalcrest.FieldsIgnorer.MARKER;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Orders the elements of a Json tree by their sort key, which is their compact Json representation, without building
+ * the keys.
+ * <p>
+ * Two elements are compared by walking their representations side by side, up to their first difference. Each object
+ * and array only keeps a fixed size hash of its representation, computed once from the hashes of its children. Where
+ * both walks reach an object or array with the same hash, like the identical subtrees of the elements of a Set, it is
+ * skipped instead of walked. Elements with the same hash are compared in full, so they are only equal if their keys
+ * are.
+ * <p>
+ * Hashes are cached by identity, so an element must not be modified after it was compared.
+ */
+final class SortKeys implements Comparator<JsonElement> {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    private static final String COMMA = ",";
+    private static final String COLON = ":";
+
+    private final Map<JsonElement, HashCode> hashes = new IdentityHashMap<>();
+    private final Map<JsonObject, Set<String>> unorderedFields;
+    private long comparedChars;
+
+    SortKeys() {
+        this(Collections.emptyMap());
+    }
+
+    /**
+     * @param unorderedFields fields serialised from Sets and Maps, their key contains the name with the
+     *                        {@link FieldsIgnorer#MARKER} prefix they were serialised with
+     */
+    SortKeys(Map<JsonObject, Set<String>> unorderedFields) {
+        this.unorderedFields = unorderedFields;
+    }
+
+    @Override
+    public int compare(JsonElement left, JsonElement right) {
+        boolean sameHash = hashOf(left).equals(hashOf(right));
+        return compare(new KeyReader(left), new KeyReader(right), !sameHash);
+    }
+
+    /**
+     * @return the number of characters of the keys read while comparing elements so far
+     */
+    long getComparedChars() {
+        return comparedChars;
+    }
+
+    private int compare(KeyReader left, KeyReader right, boolean skipSameHashes) {
+        while (true) {
+            if (skipSameHashes && left.isBeforeNode() && right.isBeforeNode()) {
+                JsonElement leftNode = left.peekNode();
+                JsonElement rightNode = right.peekNode();
+                if (isContainer(leftNode) && isContainer(rightNode) && hashOf(leftNode).equals(hashOf(rightNode))) {
+                    left.skipNode();
+                    right.skipNode();
+                    continue;
+                }
+            }
+            int leftChar = left.read();
+            int rightChar = right.read();
+            if (leftChar != rightChar) {
+                return leftChar - rightChar;
+            }
+            if (leftChar < 0) {
+                return 0;
+            }
+            comparedChars++;
+        }
+    }
+
+    private HashCode hashOf(JsonElement element) {
+        if (!isContainer(element)) {
+            return HASH_FUNCTION.hashUnencodedChars(element.toString());
+        }
+        HashCode hash = hashes.get(element);
+        if (hash == null) {
+            Hasher hasher = HASH_FUNCTION.newHasher();
+            if (element.isJsonObject()) {
+                hasher.putChar('{');
+                for (Map.Entry<String, JsonElement> member : element.getAsJsonObject().entrySet()) {
+                    String name = nameOf(element.getAsJsonObject(), member.getKey());
+                    hasher.putInt(name.length()).putUnencodedChars(name).putBytes(hashOf(member.getValue()).asBytes());
+                }
+            } else {
+                hasher.putChar('[');
+                for (JsonElement arrayElement : element.getAsJsonArray()) {
+                    hasher.putBytes(hashOf(arrayElement).asBytes());
+                }
+            }
+            hash = hasher.hash();
+            hashes.put(element, hash);
+        }
+        return hash;
+    }
+
+    private String nameOf(JsonObject object, String fieldName) {
+        return unorderedFields.getOrDefault(object, Collections.emptySet()).contains(fieldName) ? MARKER + fieldName : fieldName;
+    }
+
+    private static boolean isContainer(JsonElement element) {
+        return element.isJsonObject() || element.isJsonArray();
+    }
+
+    /**
+     * Reads the compact Json representation of an element character by character, expanding the objects and arrays
+     * only when they are reached.
+     */
+    private final class KeyReader {
+        private final Deque<Object> pending = new ArrayDeque<>();
+        private String text = "";
+        private int offset;
+
+        private KeyReader(JsonElement root) {
+            pending.push(root);
+        }
+
+        private boolean isBeforeNode() {
+            return offset == text.length() && pending.peek() instanceof JsonElement;
+        }
+
+        private JsonElement peekNode() {
+            return (JsonElement) pending.peek();
+        }
+
+        private void skipNode() {
+            pending.pop();
+        }
+
+        /**
+         * @return the next character, or -1 at the end of the representation
+         */
+        private int read() {
+            while (offset == text.length()) {
+                if (pending.isEmpty()) {
+                    return -1;
+                }
+                Object next = pending.pop();
+                if (next instanceof String) {
+                    text = (String) next;
+                    offset = 0;
+                } else {
+                    expand((JsonElement) next);
+                }
+            }
+            return text.charAt(offset++);
+        }
+
+        private void expand(JsonElement element) {
+            if (element.isJsonObject()) {
+                JsonObject object = element.getAsJsonObject();
+                List<Map.Entry<String, JsonElement>> members = new ArrayList<>(object.entrySet());
+                pending.push("}");
+                for (int i = members.size() - 1; i >= 0; i--) {
+                    pending.push(members.get(i).getValue());
+                    pending.push(COLON);
+                    pending.push(new JsonPrimitive(nameOf(object, members.get(i).getKey())).toString());
+                    if (0 < i) {
+                        pending.push(COMMA);
+                    }
+                }
+                pending.push("{");
+            } else if (element.isJsonArray()) {
+                JsonArray array = element.getAsJsonArray();
+                pending.push("]");
+                for (int i = array.size() - 1; i >= 0; i--) {
+                    pending.push(array.get(i));
+                    if (0 < i) {
+                        pending.push(COMMA);
+                    }
+                }
+                pending.push("[");
+            } else {
+                pending.push(element.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.github.karsaig.approvalcrest.matcher;
+
+import static java.lang.reflect.Modifier.isStatic;
+import static java.lang.reflect.Modifier.isTransient;
+import static java.util.Collections.newSetFromMap;
+import static org.apache.commons.lang3.ClassUtils.isPrimitiveOrWrapper;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.internal.bind.SerializationDelegatingTypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Serialises objects without checking them for circular references first, and gives up with a {@link
+ * CircularReferenceFoundException} as soon as an object is reached again while it is being written.
+ * <p>
+ * Objects which may reference each other through something {@link com.github.karsaig.approvalcrest.CyclicReferenceDetector}
+ * walks but the serialisation does not are given up on as well: a field referencing the object itself, which Gson
+ * skips, and for classes outside of the JDK transient or synthetic fields, the fields of anonymous and local classes
+ * and the elements of an {@link Iterable} which is not a {@link Collection}. The serialised form of those objects depends on what the detector finds, so
+ * they have to be checked before being serialised.
+ */
+final class CircularReferenceGuard implements TypeAdapterFactory {
+
+    static final CircularReferenceGuard FACTORY = new CircularReferenceGuard();
+
+    private static final ThreadLocal<Set<Object>> OBJECTS_BEING_WRITTEN = ThreadLocal.withInitial(() -> newSetFromMap(new IdentityHashMap<>()));
+
+    private static final ClassValue<Boolean> HIDES_REFERENCES = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            if (type.isAnonymousClass() || type.isLocalClass()) {
+                return true;
+            }
+            if (Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type) || type.getClassLoader() == null) {
+                return false;
+            }
+            if (Iterable.class.isAssignableFrom(type)) {
+                return true;
+            }
+            for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+                for (Field field : clazz.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (!isStatic(modifiers) && (isTransient(modifiers) || field.isSynthetic()) && !field.getType().isPrimitive()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    };
+
+    /**
+     * The fields which may reference the object itself, or null if they can not be read.
+     */
+    private static final ClassValue<Field[]> SELF_TYPED_FIELDS = new ClassValue<Field[]>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            if (!Collection.class.isAssignableFrom(type) && !Map.class.isAssignableFrom(type)) {
+                for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+                    for (Field field : clazz.getDeclaredFields()) {
+                        if (!isStatic(field.getModifiers()) && !field.getType().isPrimitive() && field.getType().isAssignableFrom(type)) {
+                            fields.add(field);
+                        }
+                    }
+                }
+            }
+            try {
+                for (Field field : fields) {
+                    field.setAccessible(true);
+                }
+            } catch (RuntimeException e) {
+                return null;
+            }
+            return fields.toArray(new Field[0]);
+        }
+    };
+
+    private CircularReferenceGuard() {
+    }
+
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (rawType == Object.class || rawType == String.class || rawType.isEnum() || isPrimitiveOrWrapper(rawType)) {
+            return null;
+        }
+        return new GuardingAdapter<>(gson.getDelegateAdapter(this, type));
+    }
+
+    /**
+     * Thrown when the object being serialised may have circular references, so it has to be checked for them and
+     * serialised again.
+     */
+    static final class CircularReferenceFoundException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private CircularReferenceFoundException(Class<?> type) {
+            super("Circular reference may go through " + type.getName(), null, false, false);
+        }
+    }
+
+    /**
+     * Keeps the objects being written, the ones on the path from the root to the object written, so reaching one of
+     * them again is found. It is a {@link SerializationDelegatingTypeAdapter}, so Gson still tells if the adapter it
+     * wraps is a reflective one, when choosing between the declared and the runtime type of a field.
+     */
+    private static final class GuardingAdapter<T> extends SerializationDelegatingTypeAdapter<T> {
+        private final TypeAdapter<T> delegate;
+
+        private GuardingAdapter(TypeAdapter<T> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public TypeAdapter<T> getSerializationDelegate() {
+            return delegate;
+        }
+
+        @Override
+        public void write(JsonWriter out, T value) throws IOException {
+            if (value == null) {
+                delegate.write(out, null);
+                return;
+            }
+            Set<Object> objectsBeingWritten = OBJECTS_BEING_WRITTEN.get();
+            if (HIDES_REFERENCES.get(value.getClass()) || referencesItself(value) || !objectsBeingWritten.add(value)) {
+                throw new CircularReferenceFoundException(value.getClass());
+            }
+            try {
+                delegate.write(out, value);
+            } finally {
+                objectsBeingWritten.remove(value);
+            }
+        }
+
+        private boolean referencesItself(T value) {
+            Field[] fields = SELF_TYPED_FIELDS.get(value.getClass());
+            if (fields == null) {
+                return true;
+            }
+            try {
+                for (Field field : fields) {
+                    if (field.get(value) == value) {
+                        return true;
+                    }
+                }
+            } catch (IllegalAccessException e) {
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public T read(JsonReader in) throws IOException {
+            return delegate.read(in);
+        }
+    }
+}
@@ -16,8 +16,6 @@ import com.google.gson.JsonElement;
 import org.hamcrest.Description;
 import org.hamcrest.DiagnosingMatcher;
 import org.hamcrest.Matcher;
-import org.json.JSONException;
-import org.skyscreamer.jsonassert.JSONAssert;
 
 import java.util.HashMap;
 import java.util.HashSet;
@@ -25,11 +23,9 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.function.Function;
-import java.util.regex.Pattern;
 
 import static com.github.karsaig.approvalcrest.BeanFinder.findBeanAt;
 import static com.github.karsaig.approvalcrest.CyclicReferenceDetector.getClassesWithCircularReferences;
-import static com.github.karsaig.approvalcrest.FieldsIgnorer.MARKER;
 import static com.github.karsaig.approvalcrest.FieldsIgnorer.findPaths;
 import static com.github.karsaig.approvalcrest.matcher.GsonProvider.gson;
 
@@ -38,7 +34,6 @@ import static com.github.karsaig.approvalcrest.matcher.GsonProvider.gson;
  * ignore in the comparison, or fields to be matched with a custom matcher
  */
 public class DiagnosingCustomisableMatcher<T> extends AbstractDiagnosingMatcher<T> implements CustomisableMatcher<T, DiagnosingCustomisableMatcher<T>> {
-    private static final Pattern MARKER_PATTERN = Pattern.compile(MARKER);
     protected final Set<Class<?>> circularReferenceTypes = new HashSet<>();
     protected final T expected;
     private GsonConfiguration configuration;
@@ -51,7 +46,7 @@ public class DiagnosingCustomisableMatcher<T> extends AbstractDiagnosingMatcher<
     @Override
     public void describeTo(Description description) {
         Gson gson = gson(matcherConfiguration, circularReferenceTypes, configuration);
-        description.appendText(filterJson(gson, expected));
+        description.appendText(gson.toJson(filterJson(gson, expected)));
         for (String fieldPath : matcherConfiguration.getCustomMatchers().keySet()) {
             description.appendText("\nand ")
                     .appendText(fieldPath).appendText(" ")
@@ -69,15 +64,15 @@ public class DiagnosingCustomisableMatcher<T> extends AbstractDiagnosingMatcher<
             return false;
         }
 
-        String expectedJson = filterJson(gson, expected);
+        JsonElement expectedJson = filterJson(gson, expected);
 
         if (actual == null) {
-            return appendMismatchDescription(mismatchDescription, expectedJson, "null", "actual was null");
+            return appendMismatchDescription(mismatchDescription, gson.toJson(expectedJson), "null", "actual was null");
         }
 
-        String actualJson = filterJson(gson, actual);
+        JsonElement actualJson = filterJson(gson, actual);
 
-        return assertEquals(expectedJson, actualJson, mismatchDescription);
+        return assertEquals(gson, expectedJson, actualJson, mismatchDescription);
     }
 
     private boolean areCustomMatchersMatching(Object actual, Description mismatchDescription, Gson gson) {
@@ -144,20 +139,22 @@ public class DiagnosingCustomisableMatcher<T> extends AbstractDiagnosingMatcher<
     }
 
 
-    private boolean assertEquals(String expectedJson, String actualJson, Description mismatchDescription) {
-        try {
-            JSONAssert.assertEquals(expectedJson, actualJson, true);
-        } catch (AssertionError | JSONException e) {
-            return appendMismatchDescription(mismatchDescription, expectedJson, actualJson, e.getMessage());
+    private boolean assertEquals(Gson gson, JsonElement expectedJson, JsonElement actualJson, Description mismatchDescription) {
+        StructuralHash expectedHash = StructuralHash.of(expectedJson);
+        if (expectedHash != null && expectedHash.equals(StructuralHash.of(actualJson))) {
+            return true;
         }
-
-        return true;
+        String differences = JsonTreeComparator.compare(expectedJson, actualJson);
+        if (differences == null) {
+            return true;
+        }
+        return appendMismatchDescription(mismatchDescription, gson.toJson(expectedJson), gson.toJson(actualJson), differences);
     }
 
     private void appendFieldJsonSnippet(Object actual, Description mismatchDescription, Gson gson) {
         JsonElement jsonTree = gson.toJsonTree(actual);
         if (!jsonTree.isJsonPrimitive() && !jsonTree.isJsonNull()) {
-            mismatchDescription.appendText("\n" + gson.toJson(actual));
+            mismatchDescription.appendText("\n" + gson.toJson(jsonTree));
         }
     }
 
@@ -169,17 +166,11 @@ public class DiagnosingCustomisableMatcher<T> extends AbstractDiagnosingMatcher<
         }
     }
 
-    private String filterJson(Gson gson, Object object) {
+    private JsonElement filterJson(Gson gson, Object object) {
         Set<String> set = new HashSet<>();
         set.addAll(matcherConfiguration.getPathsToIgnore());
         set.addAll(matcherConfiguration.getCustomMatchers().keySet());
-        JsonElement filteredJson = findPaths(gson, object, set, matcherConfiguration.getPatternsToSort(), matcherConfiguration.getPathsToSort());
-
-        return removeSetMarker(gson.toJson(filteredJson));
-    }
-
-    private String removeSetMarker(String json) {
-        return MARKER_PATTERN.matcher(json).replaceAll("");
+        return findPaths(gson, object, set, matcherConfiguration.getPatternsToSort(), matcherConfiguration.getPathsToSort());
     }
 
     @Override
@@ -53,4 +53,22 @@ public class GsonConfiguration {
         return typeHierarchyAdapter;
     }
 
+    /**
+     * @return a new configuration holding the same adapters, which can be changed without affecting this one
+     */
+    public GsonConfiguration copy() {
+        GsonConfiguration copy = new GsonConfiguration();
+        copy.typeAdapterFactories.addAll(typeAdapterFactories);
+        for (Map.Entry<Type, List<Object>> entry : typeAdapters.entrySet()) {
+            if (entry.getValue() != null) {
+                copy.typeAdapters.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+        }
+        for (Map.Entry<Class<?>, List<Object>> entry : typeHierarchyAdapter.entrySet()) {
+            if (entry.getValue() != null) {
+                copy.typeHierarchyAdapter.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+        }
+        return copy;
+    }
 }
@@ -10,15 +10,17 @@
 package com.github.karsaig.approvalcrest.matcher;
 
 import static com.github.karsaig.approvalcrest.FieldsIgnorer.MARKER;
-import static com.google.common.collect.Sets.newTreeSet;
 import static org.apache.commons.lang3.ClassUtils.isPrimitiveOrWrapper;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.hamcrest.Matcher;
 
@@ -35,10 +37,16 @@ import com.github.karsaig.approvalcrest.matcher.typeadapters.PathTypeAdapter;
 import com.github.karsaig.approvalcrest.matcher.typeadapters.ThrowableTypeAdapterFactory;
 import com.github.karsaig.approvalcrest.matcher.typeadapters.ZonedDateTimeAdapter;
 
+import com.google.common.base.Equivalence;
 import com.google.common.base.Optional;
-import com.google.common.collect.ArrayListMultimap;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Ordering;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.gson.ExclusionStrategy;
 import com.google.gson.FieldAttributes;
 import com.google.gson.Gson;
@@ -54,9 +62,22 @@ import com.google.gson.graph.GraphAdapterBuilder;
 /**
  * Provides an instance of {@link Gson}. If any class type has been ignored on the matcher, the {@link Gson} provided
  * will include an {@link ExclusionStrategy} which will skip the serialisation of fields for that type.
+ * <p>
+ * Built instances are cached per configuration, so matchers configured the same way share one {@link Gson} together
+ * with its already resolved type adapters. The instances are softly referenced, so the cached instances and the user
+ * adapters and matchers they hold are released when memory runs low.
  */
 @SuppressWarnings("rawtypes")
 class GsonProvider {
+
+    private static final int GSON_CACHE_SIZE = 64;
+    private static final Comparator<SortableEntry> SORT_KEY_ORDER = Comparator.comparing(entry -> entry.sortKey);
+
+    private static final LoadingCache<GsonKey, Gson> GSON_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(GSON_CACHE_SIZE)
+            .softValues()
+            .build(CacheLoader.from(GsonProvider::createGson));
+
     /**
      * Returns a {@link Gson} instance containing {@link ExclusionStrategy} based on the object types to ignore during
      * serialisation.
@@ -79,23 +100,64 @@ class GsonProvider {
      * @return an instance of {@link Gson}
      */
     public static Gson gson(MatcherConfiguration matcherConfiguration, Set<Class<?>> circularReferenceTypes, GsonConfiguration additionalConfig) {
+        try {
+            return GSON_CACHE.getUnchecked(new GsonKey(matcherConfiguration, circularReferenceTypes, additionalConfig, false));
+        } catch (UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a {@link Gson} instance for objects not checked for circular references yet. Instead of following a
+     * circular reference, it throws a {@link CircularReferenceGuard.CircularReferenceFoundException}, after which the
+     * object has to be checked and serialised with {@link #gson(MatcherConfiguration, Set, GsonConfiguration)}.
+     *
+     * @param matcherConfiguration
+     * @param additionalConfig     provides additional gson configuration
+     * @return an instance of {@link Gson}, or null if the additional configuration has type adapters, which could
+     * hide circular references from the instance
+     */
+    static Gson guardedGson(MatcherConfiguration matcherConfiguration, GsonConfiguration additionalConfig) {
+        if (additionalConfig != null && hasTypeAdapters(additionalConfig)) {
+            return null;
+        }
+        try {
+            return GSON_CACHE.getUnchecked(new GsonKey(matcherConfiguration, ImmutableSet.of(), null, true));
+        } catch (UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        }
+    }
+
+    private static boolean hasTypeAdapters(GsonConfiguration additionalConfig) {
+        return !additionalConfig.getTypeAdapterFactories().isEmpty()
+                || !additionalConfig.getTypeAdapters().isEmpty()
+                || !additionalConfig.getTypeHierarchyAdapter().isEmpty();
+    }
+
+    private static Gson createGson(GsonKey key) {
         GsonBuilder gsonBuilder = initGson();
+        GsonHolder gsonHolder = new GsonHolder();
 
-        defaultGsonConfiguration(gsonBuilder, matcherConfiguration, circularReferenceTypes);
-        if (additionalConfig != null) {
-            additionalConfiguration(additionalConfig, gsonBuilder);
+        defaultGsonConfiguration(gsonBuilder, gsonHolder, key);
+        additionalConfiguration(key, gsonBuilder);
+        if (key.guardCircularReferences) {
+            gsonBuilder.registerTypeAdapterFactory(CircularReferenceGuard.FACTORY);
         }
 
-        return gsonBuilder.create();
+        gsonHolder.gson = gsonBuilder.create();
+        return gsonHolder.gson;
     }
 
-    private static void defaultGsonConfiguration(GsonBuilder gsonBuilder, MatcherConfiguration matcherConfiguration, Set<Class<?>> circularReferenceTypes) {
+    private static void defaultGsonConfiguration(GsonBuilder gsonBuilder, GsonHolder gsonHolder, GsonKey key) {
+        IgnoringExclusionStrategy ignoringStrategy = new IgnoringExclusionStrategy(key.typesToIgnore, key.patternsToIgnore);
 
-        if (!circularReferenceTypes.isEmpty()) {
-            registerCircularReferenceTypes(circularReferenceTypes, gsonBuilder);
+        if (!key.circularReferenceTypes.isEmpty()) {
+            registerCircularReferenceTypes(key.circularReferenceTypes, gsonBuilder);
         }
 
-        gsonBuilder.registerTypeAdapterFactory(new ThrowableTypeAdapterFactory());
+        gsonBuilder.registerTypeAdapterFactory(new ThrowableTypeAdapterFactory(ignoringStrategy::isStackTraceIgnored));
         gsonBuilder.registerTypeAdapter(Optional.class, new OptionalSerializer());
         gsonBuilder.registerTypeAdapterFactory(DateAdapter.FACTORY);
         gsonBuilder.registerTypeAdapterFactory(ClassAdapter.FACTORY);
@@ -109,60 +171,38 @@ class GsonProvider {
 
         gsonBuilder.registerTypeAdapterFactory(PathTypeAdapter.FACTORY);
 
-        registerSetSerialisation(gsonBuilder);
+        registerSetSerialisation(gsonBuilder, gsonHolder);
 
-        registerMapSerialisation(gsonBuilder);
+        registerMapSerialisation(gsonBuilder, gsonHolder);
 
         markSetAndMapFields(gsonBuilder);
 
-        registerExclusionStrategies(gsonBuilder, matcherConfiguration);
+        registerExclusionStrategies(gsonBuilder, ignoringStrategy);
     }
 
-    private static void additionalConfiguration(GsonConfiguration additionalConfig, GsonBuilder gsonBuilder) {
-        for (TypeAdapterFactory factory : additionalConfig.getTypeAdapterFactories()) {
+    private static void additionalConfiguration(GsonKey key, GsonBuilder gsonBuilder) {
+        for (TypeAdapterFactory factory : key.typeAdapterFactories) {
             gsonBuilder.registerTypeAdapterFactory(factory);
         }
-        Map<Type, List<Object>> typeAdapterMap = additionalConfig.getTypeAdapters();
-        for (Type type : typeAdapterMap.keySet()) {
-            if (typeAdapterMap.get(type) != null) {
-                for (Object o : typeAdapterMap.get(type)) {
-                    gsonBuilder.registerTypeAdapter(type, o);
-
-                }
+        for (Entry<Type, List<Object>> typeAdapters : key.typeAdapters.entrySet()) {
+            for (Object o : typeAdapters.getValue()) {
+                gsonBuilder.registerTypeAdapter(typeAdapters.getKey(), o);
             }
         }
-        Map<Class<?>, List<Object>> hierarchyTypeAdapterMap = additionalConfig.getTypeHierarchyAdapter();
-        for (Class<?> clazz : hierarchyTypeAdapterMap.keySet()) {
-            if (hierarchyTypeAdapterMap.get(clazz) != null) {
-                for (Object o : hierarchyTypeAdapterMap.get(clazz)) {
-                    gsonBuilder.registerTypeHierarchyAdapter(clazz, o);
-                }
+        for (Entry<Class<?>, List<Object>> hierarchyTypeAdapters : key.typeHierarchyAdapters.entrySet()) {
+            for (Object o : hierarchyTypeAdapters.getValue()) {
+                gsonBuilder.registerTypeHierarchyAdapter(hierarchyTypeAdapters.getKey(), o);
             }
         }
-
     }
 
-    private static void registerExclusionStrategies(GsonBuilder gsonBuilder, MatcherConfiguration matcherConfiguration) {
-        if (matcherConfiguration.getTypesToIgnore().isEmpty() && matcherConfiguration.getPatternsToIgnore().isEmpty()) {
+    private static void registerExclusionStrategies(GsonBuilder gsonBuilder, IgnoringExclusionStrategy ignoringStrategy) {
+        gsonBuilder.addSerializationExclusionStrategy(ThrowableTypeAdapterFactory.STACK_TRACE_EXCLUSION);
+        if (ignoringStrategy.isEmpty()) {
             return;
         }
 
-        gsonBuilder.setExclusionStrategies(new ExclusionStrategy() {
-            @Override
-            public boolean shouldSkipField(FieldAttributes f) {
-                for (Matcher<String> p : matcherConfiguration.getPatternsToIgnore()) {
-                    if (p.matches(f.getName())) {
-                        return true;
-                    }
-                }
-                return false;
-            }
-
-            @Override
-            public boolean shouldSkipClass(Class<?> clazz) {
-                return (matcherConfiguration.getTypesToIgnore().contains(clazz));
-            }
-        });
+        gsonBuilder.setExclusionStrategies(ignoringStrategy);
     }
 
     private static void markSetAndMapFields(GsonBuilder gsonBuilder) {
@@ -174,21 +214,20 @@ class GsonProvider {
         });
     }
 
-    private static void registerMapSerialisation(GsonBuilder gsonBuilder) {
+    private static void registerMapSerialisation(GsonBuilder gsonBuilder, GsonHolder gsonHolder) {
         gsonBuilder.registerTypeHierarchyAdapter(Map.class, (JsonSerializer<Map>) (map, type, context) -> {
-            Gson gson = gsonBuilder.create();
+            Gson gson = gsonHolder.gson;
 
-            ArrayListMultimap<String, Object> objects = mapObjectsByTheirJsonRepresentation(map, gson);
-            return arrayOfObjectsOrderedByTheirJsonRepresentation(gson, objects, map);
+            List<SortableEntry> entries = mapEntriesOrderedByTheirJsonRepresentation(map, gson);
+            return arrayOfEntriesOrderedByTheirJsonRepresentation(entries);
         });
     }
 
-    private static void registerSetSerialisation(GsonBuilder gsonBuilder) {
+    private static void registerSetSerialisation(GsonBuilder gsonBuilder, GsonHolder gsonHolder) {
         gsonBuilder.registerTypeHierarchyAdapter(Set.class, (JsonSerializer<Set>) (set, type, context) -> {
-            Gson gson = gsonBuilder.create();
+            Gson gson = gsonHolder.gson;
 
-            Set<Object> orderedSet = orderSetByElementsJsonRepresentation(set, gson);
-            return arrayOfObjectsOrderedByTheirJsonRepresentation(gson, orderedSet);
+            return arrayOfElementsOrderedByTheirJsonRepresentation(set, gson);
         });
     }
 
@@ -200,64 +239,71 @@ class GsonProvider {
         graphAdapterBuilder.registerOn(gsonBuilder);
     }
 
-    @SuppressWarnings("unchecked")
-    private static Set<Object> orderSetByElementsJsonRepresentation(Set set, Gson gson) {
-        Set<Object> objects = newTreeSet(Comparator.comparing(gson::toJson));
-        objects.addAll(set);
-        return objects;
-    }
-
-    @SuppressWarnings("unchecked")
-    private static ArrayListMultimap<String, Object> mapObjectsByTheirJsonRepresentation(Map map, Gson gson) {
-        ArrayListMultimap<String, Object> objects = ArrayListMultimap.create();
-        for (Entry<Object, Object> mapEntry : (Set<Map.Entry<Object, Object>>) map.entrySet()) {
-            objects.put(gson.toJson(mapEntry.getKey()).concat(gson.toJson(mapEntry.getValue())), mapEntry.getKey());
+    /**
+     * Serialises every element once, orders the elements by their json representation and keeps only the first of
+     * the elements having the same representation.
+     */
+    private static JsonArray arrayOfElementsOrderedByTheirJsonRepresentation(Set<?> set, Gson gson) {
+        List<SortableEntry> elements = new ArrayList<>(set.size());
+        for (Object element : set) {
+            JsonElement tree = gson.toJsonTree(element);
+            elements.add(new SortableEntry(gson.toJson(tree), element, tree, null));
         }
-        return objects;
-    }
+        elements.sort(SORT_KEY_ORDER);
 
-    private static JsonArray arrayOfObjectsOrderedByTheirJsonRepresentation(Gson gson, Set<Object> objects) {
         JsonArray array = new JsonArray();
-        for (Object object : objects) {
-            array.add(gson.toJsonTree(object));
+        String previousSortKey = null;
+        for (SortableEntry element : elements) {
+            if (!element.sortKey.equals(previousSortKey)) {
+                array.add(element.keyTree);
+                previousSortKey = element.sortKey;
+            }
         }
         return array;
     }
 
-    private static JsonArray arrayOfObjectsOrderedByTheirJsonRepresentation(Gson gson, ArrayListMultimap<String, Object> objects, Map map) {
-        ImmutableList<String> sortedMapKeySet = Ordering.natural().immutableSortedCopy(objects.keySet());
+    @SuppressWarnings("unchecked")
+    private static List<SortableEntry> mapEntriesOrderedByTheirJsonRepresentation(Map map, Gson gson) {
+        List<SortableEntry> entries = new ArrayList<>(map.size());
+        for (Entry<Object, Object> mapEntry : (Set<Map.Entry<Object, Object>>) map.entrySet()) {
+            JsonElement keyTree = gson.toJsonTree(mapEntry.getKey());
+            JsonElement valueTree = gson.toJsonTree(mapEntry.getValue());
+            entries.add(new SortableEntry(gson.toJson(keyTree).concat(gson.toJson(valueTree)), mapEntry.getKey(), keyTree, valueTree));
+        }
+        entries.sort(SORT_KEY_ORDER);
+        return entries;
+    }
+
+    private static JsonArray arrayOfEntriesOrderedByTheirJsonRepresentation(List<SortableEntry> entries) {
         JsonArray array = new JsonArray();
-        if (allKeysArePrimitiveOrStringOrEnum(sortedMapKeySet, objects)) {
-            for (String jsonRepresentation : sortedMapKeySet) {
-                List<Object> objectsInTheSet = objects.get(jsonRepresentation);
-                for (Object objectInTheSet : objectsInTheSet) {
-                    JsonObject jsonObject = new JsonObject();
-                    jsonObject.add(String.valueOf(objectInTheSet), gson.toJsonTree(map.get(objectInTheSet)));
-                    array.add(jsonObject);
-                }
+        if (allKeysArePrimitiveOrStringOrEnum(entries)) {
+            for (SortableEntry entry : entries) {
+                JsonObject jsonObject = new JsonObject();
+                jsonObject.add(String.valueOf(entry.key), entry.valueTree);
+                array.add(jsonObject);
             }
         } else {
-            for (String jsonRepresentation : sortedMapKeySet) {
-                JsonArray keyValueArray = new JsonArray();
-                List<Object> objectsInTheSet = objects.get(jsonRepresentation);
-                for (Object objectInTheSet : objectsInTheSet) {
-                    keyValueArray.add(gson.toJsonTree(objectInTheSet));
-                    keyValueArray.add(gson.toJsonTree(map.get(objectInTheSet)));
-                    array.add(keyValueArray);
+            JsonArray keyValueArray = null;
+            String previousSortKey = null;
+            for (SortableEntry entry : entries) {
+                if (!entry.sortKey.equals(previousSortKey)) {
+                    keyValueArray = new JsonArray();
+                    previousSortKey = entry.sortKey;
                 }
+                keyValueArray.add(entry.keyTree);
+                keyValueArray.add(entry.valueTree);
+                array.add(keyValueArray);
             }
         }
 
         return array;
     }
 
-    private static boolean allKeysArePrimitiveOrStringOrEnum(ImmutableList<String> sortedMapKeySet, ArrayListMultimap<String, Object> objects) {
-        for (String jsonRepresentation : sortedMapKeySet) {
-            List<Object> mapKeys = objects.get(jsonRepresentation);
-            for (Object object : mapKeys) {
-                if (!(isPrimitiveOrWrapper(object.getClass()) || object.getClass() == String.class || object.getClass().isEnum())) {
-                    return false;
-                }
+    private static boolean allKeysArePrimitiveOrStringOrEnum(List<SortableEntry> entries) {
+        for (SortableEntry entry : entries) {
+            Object object = entry.key;
+            if (!(isPrimitiveOrWrapper(object.getClass()) || object.getClass() == String.class || object.getClass().isEnum())) {
+                return false;
             }
         }
         return true;
@@ -267,6 +313,173 @@ class GsonProvider {
         return new GsonBuilder().serializeSpecialFloatingPointValues().setPrettyPrinting();
     }
 
+    /**
+     * A Set element or Map entry decorated with its serialised form, so it is serialised only once while sorting.
+     */
+    private static final class SortableEntry {
+        private final String sortKey;
+        private final Object key;
+        private final JsonElement keyTree;
+        private final JsonElement valueTree;
+
+        private SortableEntry(String sortKey, Object key, JsonElement keyTree, JsonElement valueTree) {
+            this.sortKey = sortKey;
+            this.key = key;
+            this.keyTree = keyTree;
+            this.valueTree = valueTree;
+        }
+    }
+
+    /**
+     * Gives the Set and Map serialisers access to the {@link Gson} they are registered on, so elements are serialised
+     * with the enclosing instance and its adapter cache instead of a freshly created one.
+     */
+    private static final class GsonHolder {
+        private volatile Gson gson;
+    }
+
+    /**
+     * Skips the ignored types and the fields whose names match any of the ignored patterns. The outcome of the patterns
+     * only depends on the field name, so it is kept per name for the life of the cached {@link Gson}, and the matchers
+     * are called once for each field name instead of once for every field of every serialised class.
+     * <p>
+     * Stack traces are never serialised, this strategy only tells {@link ThrowableTypeAdapterFactory} whether they
+     * would have been ignored, as the class of the throwable is written in their place otherwise.
+     */
+    private static final class IgnoringExclusionStrategy implements ExclusionStrategy {
+        private static final String STACK_TRACE_FIELD_NAME = "stackTrace";
+
+        private final Set<Class<?>> typesToIgnore;
+        private final List<Matcher<String>> patternsToIgnore;
+        private final ConcurrentMap<String, Boolean> ignoredFieldNames = new ConcurrentHashMap<>();
+
+        private IgnoringExclusionStrategy(Set<Class<?>> typesToIgnore, List<Matcher<String>> patternsToIgnore) {
+            this.typesToIgnore = typesToIgnore;
+            this.patternsToIgnore = patternsToIgnore;
+        }
+
+        private boolean isEmpty() {
+            return typesToIgnore.isEmpty() && patternsToIgnore.isEmpty();
+        }
+
+        private boolean isStackTraceIgnored() {
+            return shouldSkipClass(StackTraceElement[].class) || isIgnoredFieldName(STACK_TRACE_FIELD_NAME);
+        }
+
+        @Override
+        public boolean shouldSkipField(FieldAttributes f) {
+            return isIgnoredFieldName(f.getName());
+        }
+
+        private boolean isIgnoredFieldName(String fieldName) {
+            if (patternsToIgnore.isEmpty()) {
+                return false;
+            }
+            return ignoredFieldNames.computeIfAbsent(fieldName, this::isIgnored);
+        }
+
+        private boolean isIgnored(String fieldName) {
+            for (Matcher<String> p : patternsToIgnore) {
+                if (p.matches(fieldName)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean shouldSkipClass(Class<?> clazz) {
+            return typesToIgnore.contains(clazz);
+        }
+    }
+
+    /**
+     * Immutable snapshot of everything a {@link Gson} instance is built from. Types and matchers are compared by
+     * equality, which is identity for most matchers, as their description does not tell their state apart. Factories
+     * and adapters are compared by identity as they do not define equality themselves. Matchers, factories and adapters
+     * kept in constants share the cached instance.
+     */
+    static final class GsonKey {
+        private final Set<Class<?>> typesToIgnore;
+        private final List<Matcher<String>> patternsToIgnore;
+        private final Set<Class<?>> circularReferenceTypes;
+        private final List<TypeAdapterFactory> typeAdapterFactories;
+        private final Map<Type, List<Object>> typeAdapters;
+        private final Map<Class<?>, List<Object>> typeHierarchyAdapters;
+        private final boolean guardCircularReferences;
+        private final List<Object> fingerprint;
+        private final int hashCode;
+
+        GsonKey(MatcherConfiguration matcherConfiguration, Set<Class<?>> circularReferenceTypes, GsonConfiguration additionalConfig,
+                boolean guardCircularReferences) {
+            this.typesToIgnore = ImmutableSet.copyOf(matcherConfiguration.getTypesToIgnore());
+            this.patternsToIgnore = ImmutableList.copyOf(matcherConfiguration.getPatternsToIgnore());
+            this.circularReferenceTypes = ImmutableSet.copyOf(circularReferenceTypes);
+            if (additionalConfig == null) {
+                this.typeAdapterFactories = ImmutableList.of();
+                this.typeAdapters = ImmutableMap.of();
+                this.typeHierarchyAdapters = ImmutableMap.of();
+            } else {
+                this.typeAdapterFactories = ImmutableList.copyOf(additionalConfig.getTypeAdapterFactories());
+                this.typeAdapters = copyOf(additionalConfig.getTypeAdapters());
+                this.typeHierarchyAdapters = copyOf(additionalConfig.getTypeHierarchyAdapter());
+            }
+            this.guardCircularReferences = guardCircularReferences;
+            this.fingerprint = ImmutableList.of(
+                    typesToIgnore,
+                    patternsToIgnore,
+                    this.circularReferenceTypes,
+                    identitiesOf(typeAdapterFactories),
+                    identitiesOf(typeAdapters),
+                    identitiesOf(typeHierarchyAdapters),
+                    guardCircularReferences);
+            this.hashCode = fingerprint.hashCode();
+        }
+
+        private static <K> Map<K, List<Object>> copyOf(Map<K, List<Object>> adapters) {
+            ImmutableMap.Builder<K, List<Object>> builder = ImmutableMap.builder();
+            for (Entry<K, List<Object>> entry : adapters.entrySet()) {
+                if (entry.getValue() != null) {
+                    builder.put(entry.getKey(), ImmutableList.copyOf(entry.getValue()));
+                }
+            }
+            return builder.build();
+        }
+
+        private static List<Equivalence.Wrapper<Object>> identitiesOf(List<?> objects) {
+            ImmutableList.Builder<Equivalence.Wrapper<Object>> builder = ImmutableList.builder();
+            for (Object object : objects) {
+                builder.add(Equivalence.identity().wrap(object));
+            }
+            return builder.build();
+        }
+
+        private static <K> Map<K, List<Equivalence.Wrapper<Object>>> identitiesOf(Map<K, List<Object>> adapters) {
+            ImmutableMap.Builder<K, List<Equivalence.Wrapper<Object>>> builder = ImmutableMap.builder();
+            for (Entry<K, List<Object>> entry : adapters.entrySet()) {
+                builder.put(entry.getKey(), identitiesOf(entry.getValue()));
+            }
+            return builder.build();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof GsonKey)) {
+                return false;
+            }
+            GsonKey other = (GsonKey) o;
+            return hashCode == other.hashCode && fingerprint.equals(other.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
     private static class OptionalSerializer<T> implements JsonSerializer<Optional<T>> {
 
         @Override
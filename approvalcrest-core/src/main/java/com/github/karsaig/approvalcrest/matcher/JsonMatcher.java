@@ -1,13 +1,18 @@
 package com.github.karsaig.approvalcrest.matcher;
 
 import com.github.karsaig.approvalcrest.FileMatcherConfig;
+import com.github.karsaig.approvalcrest.FilteringJsonTreeWriter;
 import com.github.karsaig.approvalcrest.MatcherConfiguration;
+import com.github.karsaig.approvalcrest.NormalizationPlan;
+import com.github.karsaig.approvalcrest.matcher.CircularReferenceGuard.CircularReferenceFoundException;
 import com.github.karsaig.approvalcrest.matcher.file.AbstractDiagnosingFileMatcher;
+import com.github.karsaig.approvalcrest.matcher.file.ContentWriter;
 import com.github.karsaig.approvalcrest.matcher.file.FileStoreMatcherUtils;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.gson.Gson;
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonParser;
 import org.hamcrest.Description;
 import org.hamcrest.Matcher;
@@ -16,21 +21,13 @@ import org.skyscreamer.jsonassert.JSONAssert;
 
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.function.Function;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import static com.github.karsaig.approvalcrest.BeanFinder.findBeanAt;
 import static com.github.karsaig.approvalcrest.CyclicReferenceDetector.getClassesWithCircularReferences;
-import static com.github.karsaig.approvalcrest.FieldsIgnorer.MARKER;
-import static com.github.karsaig.approvalcrest.FieldsIgnorer.applySorting;
-import static com.github.karsaig.approvalcrest.FieldsIgnorer.findPaths;
-import static com.github.karsaig.approvalcrest.FieldsIgnorer.sortJsonFields;
 
 /**
  * <p>
@@ -57,21 +54,35 @@ import static com.github.karsaig.approvalcrest.FieldsIgnorer.sortJsonFields;
  * @author Andras_Gyuro
  */
 public class JsonMatcher<T> extends AbstractDiagnosingFileMatcher<T, JsonMatcher<T>> implements CustomisableMatcher<T, JsonMatcher<T>> {
-    private static final Pattern MARKER_PATTERN = Pattern.compile(MARKER);
+    private static final Function<String, Either> PARSE_APPROVED_CONTENT = JsonMatcher::parseApprovedContent;
 
-    private final MatcherConfiguration matcherConfiguration = new MatcherConfiguration();
     private final Set<Class<?>> circularReferenceTypes = new HashSet<>();
+    private MatcherConfiguration matcherConfiguration;
+    private MatcherSpec spec;
     private Either expected;
 
     private GsonConfiguration configuration;
 
     public JsonMatcher(TestMetaInformation testMetaInformation, FileMatcherConfig fileMatcherConfig) {
+        this(testMetaInformation, fileMatcherConfig, MatcherSpec.DEFAULT);
+    }
+
+    /**
+     * @param spec the shared configuration to match with, until the matcher is customised further
+     */
+    public JsonMatcher(TestMetaInformation testMetaInformation, FileMatcherConfig fileMatcherConfig, MatcherSpec spec) {
         super(testMetaInformation, fileMatcherConfig, new FileStoreMatcherUtils("json", fileMatcherConfig));
+        if (spec == null) {
+            throw new IllegalArgumentException("spec must not be null");
+        }
+        this.spec = spec;
+        this.matcherConfiguration = spec.getMatcherConfiguration();
+        this.configuration = spec.getGsonConfiguration();
     }
 
     @Override
     public void describeTo(Description description) {
-        Gson gson = GsonProvider.gson(matcherConfiguration, circularReferenceTypes, configuration);
+        Gson gson = gson();
         if (expected.isParsedJson()) {
             description.appendText(filterJson(gson, expected.getParsedContent(), true));
         } else {
@@ -85,19 +96,19 @@ public class JsonMatcher<T> extends AbstractDiagnosingFileMatcher<T, JsonMatcher
 
     @Override
     public JsonMatcher<T> ignoring(String fieldPath) {
-        matcherConfiguration.addPathToIgnore(fieldPath);
+        configure().addPathToIgnore(fieldPath);
         return this;
     }
 
     @Override
     public JsonMatcher<T> ignoring(Class<?> clazz) {
-        matcherConfiguration.addTypeToIgnore(clazz);
+        configure().addTypeToIgnore(clazz);
         return this;
     }
 
     @Override
     public JsonMatcher<T> ignoring(Matcher<String> fieldNamePattern) {
-        matcherConfiguration.addPatternToIgnore(fieldNamePattern);
+        configure().addPatternToIgnore(fieldNamePattern);
         return this;
     }
 
@@ -105,19 +116,20 @@ public class JsonMatcher<T> extends AbstractDiagnosingFileMatcher<T, JsonMatcher
     @SafeVarargs
     @Override
     public final JsonMatcher<T> ignoring(Matcher<String>... fieldNamePatterns) {
-        matcherConfiguration.addPatternToIgnore(fieldNamePatterns);
+        configure().addPatternToIgnore(fieldNamePatterns);
         return this;
     }
 
     @Override
     public <V> JsonMatcher<T> with(String fieldPath, Matcher<V> matcher) {
         ignoring(fieldPath);
-        matcherConfiguration.addCustomMatcher(fieldPath, matcher);
+        configure().addCustomMatcher(fieldPath, matcher);
         return this;
     }
 
     @Override
     public JsonMatcher<T> withGsonConfiguration(GsonConfiguration configuration) {
+        configure();
         this.configuration = configuration;
         return this;
     }
@@ -125,10 +137,16 @@ public class JsonMatcher<T> extends AbstractDiagnosingFileMatcher<T, JsonMatcher
     @Override
     protected boolean matches(Object actual, Description mismatchDescription) {
         boolean matches = false;
-        circularReferenceTypes.addAll(getClassesWithCircularReferences(actual, matcherConfiguration));
+        JsonElement serializedWithoutCheck = circularReferenceTypes.isEmpty() ? serializeWithoutCircularReferenceCheck(actual) : null;
+        if (serializedWithoutCheck == null) {
+            circularReferenceTypes.addAll(getClassesWithCircularReferences(actual, matcherConfiguration));
+        }
         init();
-        Gson gson = GsonProvider.gson(matcherConfiguration, circularReferenceTypes, configuration);
-        if (createNotApprovedFileIfNotExists(actual, gson)
+        Gson gson = gson();
+        Supplier<JsonElement> actualJson = serializedWithoutCheck == null
+                ? Suppliers.memoize(() -> serializeToJsonTree(actual, gson))
+                : Suppliers.ofInstance(serializedWithoutCheck);
+        if (createNotApprovedFileIfNotExists(actual, actualJson, gson)
                 && fileMatcherConfig.isPassOnCreateEnabled()) {
             return true;
         }
@@ -136,112 +154,109 @@ public class JsonMatcher<T> extends AbstractDiagnosingFileMatcher<T, JsonMatcher
 
         if (areCustomMatchersMatching(actual, mismatchDescription, gson)) {
 
-            String expectedJson = expected.getOriginalContent();
-            if (expected.isParsedJson()) {
-                expectedJson = filterJson(gson, expected.getParsedContent(), fileMatcherConfig.isSortInputFile());
-            }
-
-            JsonElement actualJsonElement = getAsJsonElement(gson, actual);
-
             if (actual == null) {
+                String expectedJson = expected.getOriginalContent();
+                if (expected.isParsedJson()) {
+                    expectedJson = filterJson(gson, expected.getParsedContent(), fileMatcherConfig.isSortInputFile());
+                }
                 matches = appendMismatchDescription(mismatchDescription, expectedJson, "null", "actual was null");
             } else {
-                String actualJson = filterJson(gson, actualJsonElement, true);
-
-                matches = assertEquals(expectedJson, actualJson, mismatchDescription);
+                if (expected.isParsedJson()) {
+                    JsonElement expectedJson = normalizationPlan(fileMatcherConfig.isSortInputFile())
+                            .normalize(expected.getParsedContent());
+                    matches = assertEquals(gson, expectedJson, actualJson.get(), mismatchDescription);
+                } else {
+                    matches = assertEquals(expected.getOriginalContent(), gson.toJson(actualJson.get()), mismatchDescription);
+                }
                 if (!matches) {
-                    matches = handleInPlaceOverwrite(actual, gson);
+                    matches = handleInPlaceOverwrite(actual, actualJson, gson);
                 }
             }
         } else {
-            matches = handleInPlaceOverwrite(actual, gson);
+            matches = handleInPlaceOverwrite(actual, actualJson, gson);
         }
         return matches;
     }
 
     @Override
     public JsonMatcher<T> ignoring(String... fieldPaths) {
-        matcherConfiguration.addPathToIgnore(fieldPaths);
+        configure().addPathToIgnore(fieldPaths);
         return this;
     }
 
     @Override
     public JsonMatcher<T> ignoring(Class<?>... clazzs) {
-        matcherConfiguration.addTypeToIgnore(clazzs);
+        configure().addTypeToIgnore(clazzs);
         return this;
     }
 
-    private boolean handleInPlaceOverwrite(Object actual, Gson gson) {
-        if (fileMatcherConfig.isOverwriteInPlaceEnabled()) {
-            overwriteApprovedFile(actual, gson);
-            return true;
+    /**
+     * Detaches the matcher from its spec before the first change of the configuration, so the spec stays unchanged.
+     */
+    private MatcherConfiguration configure() {
+        if (spec != null) {
+            matcherConfiguration = matcherConfiguration.copy();
+            spec = null;
         }
-        return false;
+        return matcherConfiguration;
     }
 
-    private JsonElement getAsJsonElement(Gson gson, Object object) {
-        JsonElement result;
-        if (object instanceof String) {
-            result = JsonParser.parseString((String) object);
-        } else {
-            result = gson.toJsonTree(object);
+    private Gson gson() {
+        if (spec != null) {
+            return spec.gson(circularReferenceTypes);
         }
-        return result;
+        return GsonProvider.gson(matcherConfiguration, circularReferenceTypes, configuration);
     }
 
-    private void initExpectedFromFile() {
-        expected = getExpectedFromFile(fileContent -> {
-            try {
-                return new Either(JsonParser.parseString(fileContent));
-            } catch (Exception e) {
-                return new Either(fileContent);
-            }
-        });
+    private Gson guardedGson() {
+        if (spec != null) {
+            return spec.guardedGson();
+        }
+        return GsonProvider.guardedGson(matcherConfiguration, configuration);
     }
 
-    private String filterJson(Gson gson, JsonElement jsonElement, boolean sortFile) {
-        Set<String> set = new HashSet<>(matcherConfiguration.getPathsToIgnore());
-
-        JsonElement filteredJson = findPaths(jsonElement, set);
-        filterByFieldMatchers(filteredJson, matcherConfiguration.getPatternsToIgnore());
-        sortJsonFields(filteredJson, sortFile);
-        applySorting(filteredJson, matcherConfiguration.getPathsToSort(), matcherConfiguration.getPatternsToSort(), sortFile);
-
-        return removeSetMarker(gson.toJson(filteredJson));
+    private NormalizationPlan normalizationPlan(boolean sortFile) {
+        if (spec != null) {
+            return spec.normalizationPlan(sortFile);
+        }
+        return NormalizationPlan.of(matcherConfiguration, sortFile);
     }
 
-    private void filterByFieldMatchers(JsonElement jsonElement, List<Matcher<String>> matchers) {
-        if (jsonElement != null && !matchers.isEmpty() && !jsonElement.isJsonNull()) {
-            filterFieldsByFieldMatchers(jsonElement, matchers);
+    private boolean handleInPlaceOverwrite(Object actual, Supplier<JsonElement> actualJson, Gson gson) {
+        if (fileMatcherConfig.isOverwriteInPlaceEnabled()) {
+            overwriteApprovedFile(actual, actualJson, gson);
+            return true;
         }
+        return false;
     }
 
-    private void filterFieldsByFieldMatchers(JsonElement jsonElement, List<Matcher<String>> matchers) {
-        if (jsonElement.isJsonObject()) {
-            JsonObject jsonObject = jsonElement.getAsJsonObject();
-            List<String> fieldsToRemove = getFieldsToRemove(jsonObject.keySet(), matchers);
-            fieldsToRemove.forEach(jsonObject::remove);
-            jsonObject.entrySet().forEach(je -> filterFieldsByFieldMatchers(je.getValue(), matchers));
-        } else if (jsonElement.isJsonArray()) {
-            JsonArray jsonArray = jsonElement.getAsJsonArray();
-            Iterator<JsonElement> iterator = jsonArray.iterator();
-            while (iterator.hasNext()) {
-                filterFieldsByFieldMatchers(iterator.next(), matchers);
-            }
+    private void initExpectedFromFile() {
+        expected = getExpectedFromFile(PARSE_APPROVED_CONTENT);
+    }
+
+    private static Either parseApprovedContent(String fileContent) {
+        try {
+            return new Either(JsonParser.parseString(fileContent));
+        } catch (Exception e) {
+            return new Either(fileContent);
         }
     }
 
-    private List<String> getFieldsToRemove(Set<String> fieldNames, List<Matcher<String>> matchers) {
-        return fieldNames.stream().filter(fn -> anyMatchesFieldName(fn, matchers)).collect(Collectors.toList());
+    private String filterJson(Gson gson, JsonElement jsonElement, boolean sortFile) {
+        return gson.toJson(normalizationPlan(sortFile).normalize(jsonElement));
     }
 
-    private boolean anyMatchesFieldName(String fieldName, List<Matcher<String>> matchers) {
-        for (Matcher<String> actual : matchers) {
-            if (actual.matches(fieldName)) {
-                return true;
-            }
+    private boolean assertEquals(Gson gson, JsonElement expectedJson, JsonElement actualJson, Description mismatchDescription) {
+        StructuralHash expectedHash = StructuralHash.of(expectedJson);
+        if (expectedHash != null && expectedHash.equals(StructuralHash.of(actualJson))) {
+            return true;
         }
-        return false;
+        String differences = JsonTreeComparator.compare(expectedJson, actualJson);
+        if (differences == null) {
+            return true;
+        }
+        return appendMismatchDescription(mismatchDescription, gson.toJson(expectedJson), gson.toJson(actualJson),
+                getAssertMessage(fileStoreMatcherUtils, differences));
     }
 
     private boolean assertEquals(String expectedJson, String actualJson,
@@ -257,21 +272,59 @@ public class JsonMatcher<T> extends AbstractDiagnosingFileMatcher<T, JsonMatcher
         return true;
     }
 
-    private String removeSetMarker(String json) {
-        return MARKER_PATTERN.matcher(json).replaceAll("");
+    private boolean createNotApprovedFileIfNotExists(Object toApprove, Supplier<JsonElement> toApproveJson, Gson gson) {
+        if (fileMatcherConfig.isStreamingEnabled()) {
+            return writeNotApprovedFileIfNotExists(toApprove, () -> jsonWriter(gson, toApproveJson.get()));
+        }
+        return createNotApprovedFileIfNotExists(toApprove, () -> gson.toJson(toApproveJson.get()));
     }
 
-    private boolean createNotApprovedFileIfNotExists(Object toApprove, Gson gson) {
-        return createNotApprovedFileIfNotExists(toApprove, () -> serializeToJson(toApprove, gson));
+    private void overwriteApprovedFile(Object actual, Supplier<JsonElement> actualJson, Gson gson) {
+        if (fileMatcherConfig.isStreamingEnabled()) {
+            writeApprovedFile(actual, () -> jsonWriter(gson, actualJson.get()));
+        } else {
+            overwriteApprovedFile(actual, () -> gson.toJson(actualJson.get()));
+        }
     }
 
-    private void overwriteApprovedFile(Object actual, Gson gson) {
-        overwriteApprovedFile(actual, () -> serializeToJson(actual, gson));
+    /**
+     * Serializes the object to approve into its filtered Json tree. Matching serializes the actual object only once
+     * and shares the tree between the comparison and the written files.
+     */
+    private JsonElement serializeToJsonTree(Object toApprove, Gson gson) {
+        if (toApprove instanceof String) {
+            return normalizationPlan(true).normalize(JsonParser.parseString((String) toApprove));
+        }
+        FilteringJsonTreeWriter writer = new FilteringJsonTreeWriter(normalizationPlan(true), false);
+        if (toApprove == null) {
+            gson.toJson(JsonNull.INSTANCE, writer);
+        } else {
+            gson.toJson(toApprove, toApprove.getClass(), writer);
+        }
+        return writer.get();
+    }
+
+    /**
+     * Serializes the object to approve without walking it for circular references first. Most objects have none, they
+     * are serialized only once this way, while the ones reaching themselves again are left to be checked and serialized
+     * by the {@link com.google.gson.graph.GraphAdapterBuilder} of {@link #gson()}.
+     *
+     * @return the filtered Json tree, or null if the object has to be checked for circular references
+     */
+    private JsonElement serializeWithoutCircularReferenceCheck(Object toApprove) {
+        Gson guardedGson = toApprove == null || toApprove instanceof String ? null : guardedGson();
+        if (guardedGson == null) {
+            return null;
+        }
+        try {
+            return serializeToJsonTree(toApprove, guardedGson);
+        } catch (CircularReferenceFoundException e) {
+            return null;
+        }
     }
 
-    private String serializeToJson(Object toApprove, Gson gson) {
-        JsonElement actualJsonElement = getAsJsonElement(gson, toApprove);
-        return filterJson(gson, actualJsonElement, true);
+    private ContentWriter jsonWriter(Gson gson, JsonElement jsonElement) {
+        return writer -> gson.toJson(jsonElement, writer);
     }
 
 
@@ -300,7 +353,7 @@ public class JsonMatcher<T> extends AbstractDiagnosingFileMatcher<T, JsonMatcher
     private void appendFieldJsonSnippet(Object actual, Description mismatchDescription, Gson gson) {
         JsonElement jsonTree = gson.toJsonTree(actual);
         if (!jsonTree.isJsonPrimitive() && !jsonTree.isJsonNull()) {
-            mismatchDescription.appendText("\n" + gson.toJson(actual));
+            mismatchDescription.appendText("\n" + gson.toJson(jsonTree));
         }
     }
 
@@ -314,21 +367,21 @@ public class JsonMatcher<T> extends AbstractDiagnosingFileMatcher<T, JsonMatcher
 
     @Override
     public JsonMatcher<T> skipCircularReferenceCheck(Function<Object, Boolean> matcher) {
-        matcherConfiguration.addSkipCircularReferenceChecker(matcher);
+        configure().addSkipCircularReferenceChecker(matcher);
         return this;
     }
 
     @SuppressWarnings({"unchecked", "varargs"})
     @Override
     public final JsonMatcher<T> skipCircularReferenceCheck(Function<Object, Boolean> matcher, Function<Object, Boolean>... matchers) {
-        matcherConfiguration.addSkipCircularReferenceChecker(matcher);
-        matcherConfiguration.addSkipCircularReferenceChecker(matchers);
+        configure().addSkipCircularReferenceChecker(matcher);
+        configure().addSkipCircularReferenceChecker(matchers);
         return this;
     }
 
     @Override
     public JsonMatcher<T> sortField(Matcher<String> fieldNamePattern) {
-        matcherConfiguration.addPatternToSort(fieldNamePattern);
+        configure().addPatternToSort(fieldNamePattern);
         return this;
     }
 
@@ -336,19 +389,19 @@ public class JsonMatcher<T> extends AbstractDiagnosingFileMatcher<T, JsonMatcher
     @SafeVarargs
     @Override
     public final JsonMatcher<T> sortField(Matcher<String>... fieldNamePatterns) {
-        matcherConfiguration.addPatternToSort(fieldNamePatterns);
+        configure().addPatternToSort(fieldNamePatterns);
         return this;
     }
 
     @Override
     public JsonMatcher<T> sortField(String fieldPath) {
-        matcherConfiguration.addPathToSort(fieldPath);
+        configure().addPathToSort(fieldPath);
         return this;
     }
 
     @Override
     public JsonMatcher<T> sortField(String... fieldPaths) {
-        matcherConfiguration.addPathToSort(fieldPaths);
+        configure().addPathToSort(fieldPaths);
         return this;
     }
 
@@ -361,8 +414,8 @@ public class JsonMatcher<T> extends AbstractDiagnosingFileMatcher<T, JsonMatcher
     }
 
     private static class Either {
-        private JsonElement parsedContent;
-        private String originalContent;
+        private final JsonElement parsedContent;
+        private final String originalContent;
 
         public Either(JsonElement parsedContent) {
             this.parsedContent = parsedContent;
@@ -0,0 +1,223 @@
+package com.github.karsaig.approvalcrest.matcher;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Compares two Json trees the same way {@code JSONAssert.assertEquals(expected, actual, true)} compares their
+ * serialised form, reporting the same path qualified differences, without rendering the trees to Strings and parsing
+ * them back.
+ * <p>
+ * Values are compared as JSONAssert sees them after parsing: numbers by their double value, strings, booleans and
+ * nulls by equality, object fields in name order and arrays element by element.
+ */
+final class JsonTreeComparator {
+    static final Pattern NUMBER = Pattern.compile("-?(?:0|[1-9]\\d*)(?:\\.\\d+)?(?:[eE][+-]?\\d+)?");
+    private static final Object NULL = new Object() {
+        @Override
+        public String toString() {
+            return "null";
+        }
+    };
+
+    private final StringBuilder message = new StringBuilder();
+    private boolean failed;
+
+    private JsonTreeComparator() {
+    }
+
+    /**
+     * @return null if the trees are equal, otherwise the description of their differences
+     */
+    static String compare(JsonElement expected, JsonElement actual) {
+        String parseError = parseError(expected);
+        if (parseError == null) {
+            parseError = parseError(actual);
+        }
+        if (parseError != null) {
+            return parseError;
+        }
+        JsonTreeComparator comparator = new JsonTreeComparator();
+        if (expected.isJsonObject() && actual.isJsonObject()) {
+            comparator.compareObjects("", expected.getAsJsonObject(), actual.getAsJsonObject());
+        } else if (expected.isJsonArray() && actual.isJsonArray()) {
+            comparator.compareArrays("", expected.getAsJsonArray(), actual.getAsJsonArray());
+        } else if (expected.isJsonPrimitive() && actual.isJsonPrimitive()) {
+            if (!expected.toString().equals(actual.toString())) {
+                comparator.fail("");
+            }
+        } else {
+            comparator.fail("", describeRoot(expected), describeRoot(actual));
+        }
+        return comparator.failed ? comparator.message.toString() : null;
+    }
+
+    /**
+     * JSONAssert only accepts objects, arrays, strings and plain numbers as the whole document, and rejects non-finite
+     * numbers as object fields.
+     */
+    private static String parseError(JsonElement root) {
+        if (root.isJsonPrimitive()) {
+            JsonPrimitive primitive = root.getAsJsonPrimitive();
+            if (primitive.isString() || primitive.isNumber() && NUMBER.matcher(primitive.toString()).matches()) {
+                return null;
+            }
+        } else if (!root.isJsonNull()) {
+            return forbiddenNumber(root);
+        }
+        return "Unparsable JSON string: " + root;
+    }
+
+    private static String forbiddenNumber(JsonElement jsonElement) {
+        if (jsonElement.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> member : jsonElement.getAsJsonObject().entrySet()) {
+                Object value = valueOf(member.getValue());
+                if (value instanceof Double && (((Double) value).isNaN() || ((Double) value).isInfinite())) {
+                    return "Forbidden numeric value: " + value;
+                }
+                String forbidden = forbiddenNumber(member.getValue());
+                if (forbidden != null) {
+                    return forbidden;
+                }
+            }
+        } else if (jsonElement.isJsonArray()) {
+            for (JsonElement arrayElement : jsonElement.getAsJsonArray()) {
+                String forbidden = forbiddenNumber(arrayElement);
+                if (forbidden != null) {
+                    return forbidden;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void compareObjects(String prefix, JsonObject expected, JsonObject actual) {
+        for (String key : new TreeSet<>(expected.keySet())) {
+            if (actual.has(key)) {
+                compareValues(qualify(prefix, key), expected.get(key), actual.get(key));
+            } else {
+                missing(prefix, key);
+            }
+        }
+        Set<String> expectedKeys = expected.keySet();
+        for (String key : new TreeSet<>(actual.keySet())) {
+            if (!expectedKeys.contains(key)) {
+                unexpected(prefix, key);
+            }
+        }
+    }
+
+    private void compareArrays(String prefix, JsonArray expected, JsonArray actual) {
+        if (expected.size() != actual.size()) {
+            fail(prefix + "[]: Expected " + expected.size() + " values but got " + actual.size());
+            return;
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            compareValues(prefix + "[" + i + "]", expected.get(i), actual.get(i));
+        }
+    }
+
+    private void compareValues(String prefix, JsonElement expected, JsonElement actual) {
+        Object expectedValue = valueOf(expected);
+        Object actualValue = valueOf(actual);
+        if (expectedValue == actualValue) {
+            return;
+        }
+        if (expectedValue instanceof Number && actualValue instanceof Number) {
+            if (((Number) expectedValue).doubleValue() != ((Number) actualValue).doubleValue()) {
+                fail(prefix, expectedValue, actualValue);
+            }
+        } else if (expectedValue.getClass().isAssignableFrom(actualValue.getClass())) {
+            if (expectedValue instanceof JsonArray) {
+                compareArrays(prefix, (JsonArray) expectedValue, (JsonArray) actualValue);
+            } else if (expectedValue instanceof JsonObject) {
+                compareObjects(prefix, (JsonObject) expectedValue, (JsonObject) actualValue);
+            } else if (!expectedValue.equals(actualValue)) {
+                fail(prefix, expectedValue, actualValue);
+            }
+        } else {
+            fail(prefix, expectedValue, actualValue);
+        }
+    }
+
+    /**
+     * Returns the value the serialised element is parsed into by JSONAssert.
+     */
+    private static Object valueOf(JsonElement jsonElement) {
+        if (jsonElement.isJsonNull()) {
+            return NULL;
+        }
+        if (!jsonElement.isJsonPrimitive()) {
+            return jsonElement;
+        }
+        JsonPrimitive primitive = jsonElement.getAsJsonPrimitive();
+        if (primitive.isBoolean()) {
+            return primitive.getAsBoolean();
+        }
+        if (primitive.isString()) {
+            return primitive.getAsString();
+        }
+        String literal = primitive.toString();
+        if (literal.indexOf('.') < 0) {
+            try {
+                long longValue = Long.parseLong(literal);
+                if (longValue <= Integer.MAX_VALUE && longValue >= Integer.MIN_VALUE) {
+                    return (int) longValue;
+                }
+                return longValue;
+            } catch (NumberFormatException e) {
+                // too large or in exponential form, parsed as a floating point number
+            }
+        }
+        try {
+            return Double.valueOf(literal);
+        } catch (NumberFormatException e) {
+            return literal;
+        }
+    }
+
+    private void missing(String prefix, String key) {
+        fail(prefix + "\nExpected: " + key + "\n     but none found\n");
+    }
+
+    private void unexpected(String prefix, String key) {
+        fail(prefix + "\nUnexpected: " + key + "\n");
+    }
+
+    private void fail(String prefix, Object expected, Object actual) {
+        fail(prefix + "\nExpected: " + describe(expected) + "\n     got: " + describe(actual) + "\n");
+    }
+
+    private void fail(String failure) {
+        if (message.length() > 0) {
+            message.append(" ; ");
+        }
+        message.append(failure);
+        failed = true;
+    }
+
+    private static String describe(Object value) {
+        if (value instanceof JsonArray) {
+            return "a JSON array";
+        }
+        if (value instanceof JsonObject) {
+            return "a JSON object";
+        }
+        return value.toString();
+    }
+
+    private static Object describeRoot(JsonElement root) {
+        return root.isJsonPrimitive() ? root.toString() : root;
+    }
+
+    private static String qualify(String prefix, String key) {
+        return prefix.isEmpty() ? key : prefix + "." + key;
+    }
+}
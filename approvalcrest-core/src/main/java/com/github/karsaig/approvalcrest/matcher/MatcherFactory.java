@@ -23,6 +23,10 @@ public class MatcherFactory {
         return new JsonMatcher<>(testMetaInformation, fileMatcherConfig);
     }
 
+    protected <T> JsonMatcher<T> jsonMatcher(TestMetaInformation testMetaInformation, FileMatcherConfig fileMatcherConfig, MatcherSpec spec) {
+        return new JsonMatcher<>(testMetaInformation, fileMatcherConfig, spec);
+    }
+
     protected <T> ContentMatcher<T> contentMatcher(TestMetaInformation testMetaInformation, FileMatcherConfig fileMatcherConfig) {
         return new ContentMatcher<>(testMetaInformation, fileMatcherConfig);
     }
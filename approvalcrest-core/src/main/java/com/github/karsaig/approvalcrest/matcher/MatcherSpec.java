@@ -0,0 +1,101 @@
+package com.github.karsaig.approvalcrest.matcher;
+
+import com.github.karsaig.approvalcrest.MatcherConfiguration;
+import com.github.karsaig.approvalcrest.NormalizationPlan;
+import com.google.gson.Gson;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Immutable matcher configuration, compiled once into the ignore and sort rules and the {@link Gson} used to
+ * serialise the objects without circular references. A spec can be kept in a {@code static final} field and shared
+ * between tests running concurrently, binding it to a test only creates the matcher:
+ * <pre>
+ * private static final MatcherSpec SPEC = MatcherSpec.of(new MatcherConfiguration()
+ *         .addPathToIgnore("id")
+ *         .addPatternToSort(endsWith("List")));
+ *
+ * assertThat(actual, sameJsonAsApproved(SPEC));
+ * </pre>
+ * The configurations are copied when the spec is created, later changes to them do not affect the spec. Customising a
+ * matcher created from a spec, like calling {@link JsonMatcher#ignoring(String)}, copies the configuration of the spec
+ * into that matcher only.
+ * <p>
+ * The field matchers and type adapters of the configurations are shared as they are, so they have to be safe to use
+ * from several threads when the spec is.
+ */
+public final class MatcherSpec {
+
+    static final MatcherSpec DEFAULT = of(new MatcherConfiguration());
+
+    private final MatcherConfiguration matcherConfiguration;
+    private final GsonConfiguration gsonConfiguration;
+    private final NormalizationPlan sortingPlan;
+    private final NormalizationPlan plan;
+    private final Gson gson;
+    private final Gson guardedGson;
+
+    private MatcherSpec(MatcherConfiguration matcherConfiguration, GsonConfiguration gsonConfiguration) {
+        this.matcherConfiguration = matcherConfiguration;
+        this.gsonConfiguration = gsonConfiguration;
+        this.sortingPlan = NormalizationPlan.of(matcherConfiguration, true);
+        this.plan = NormalizationPlan.of(matcherConfiguration, false);
+        this.gson = GsonProvider.gson(matcherConfiguration, Collections.emptySet(), gsonConfiguration);
+        this.guardedGson = GsonProvider.guardedGson(matcherConfiguration, gsonConfiguration);
+    }
+
+    /**
+     * @param matcherConfiguration the fields to ignore, sort and match with custom matchers
+     * @return a spec compiled from a copy of the configuration
+     */
+    public static MatcherSpec of(MatcherConfiguration matcherConfiguration) {
+        return of(matcherConfiguration, null);
+    }
+
+    /**
+     * @param matcherConfiguration the fields to ignore, sort and match with custom matchers
+     * @param gsonConfiguration    additional Gson configuration, can be null
+     * @return a spec compiled from copies of the configurations
+     */
+    public static MatcherSpec of(MatcherConfiguration matcherConfiguration, GsonConfiguration gsonConfiguration) {
+        if (matcherConfiguration == null) {
+            throw new IllegalArgumentException("matcherConfiguration must not be null");
+        }
+        return new MatcherSpec(matcherConfiguration.copy(), gsonConfiguration == null ? null : gsonConfiguration.copy());
+    }
+
+    /**
+     * @return the configuration of the spec, which must not be changed
+     */
+    MatcherConfiguration getMatcherConfiguration() {
+        return matcherConfiguration;
+    }
+
+    /**
+     * @return the Gson configuration of the spec, which must not be changed
+     */
+    GsonConfiguration getGsonConfiguration() {
+        return gsonConfiguration;
+    }
+
+    NormalizationPlan normalizationPlan(boolean sortFile) {
+        return sortFile ? sortingPlan : plan;
+    }
+
+    Gson gson(Set<Class<?>> circularReferenceTypes) {
+        if (circularReferenceTypes.isEmpty()) {
+            return gson;
+        }
+        return GsonProvider.gson(matcherConfiguration, circularReferenceTypes, gsonConfiguration);
+    }
+
+    /**
+     * @return the {@link Gson} serialising the objects not checked for circular references yet, or null if the spec can
+     * not have one
+     * @see GsonProvider#guardedGson(MatcherConfiguration, GsonConfiguration)
+     */
+    Gson guardedGson() {
+        return guardedGson;
+    }
+}
@@ -0,0 +1,180 @@
+package com.github.karsaig.approvalcrest.matcher;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+
+import java.util.Map;
+
+/**
+ * 128 bit hash of the content of a Json tree, used to accept equal trees without comparing them node by node.
+ * <p>
+ * Field order does not change the hash, as {@link JsonTreeComparator} does not depend on it either. Numbers are hashed
+ * by their literal, so numbers written differently only cost a full comparison. Trees {@link JsonTreeComparator}
+ * rejects even when compared with themselves, like top-level literals or non-finite numbers, have no hash.
+ */
+final class StructuralHash {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final int NULL = 1;
+    private static final int TRUE = 2;
+    private static final int FALSE = 3;
+    private static final int NUMBER = 4;
+    private static final int STRING = 5;
+    private static final int ARRAY = 6;
+    private static final int OBJECT = 7;
+    private static final int MEMBER = 8;
+
+    private final long high;
+    private final long low;
+
+    private StructuralHash(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * @return the hash of the tree, or null if the tree has to be compared by {@link JsonTreeComparator}
+     */
+    static StructuralHash of(JsonElement root) {
+        if (root.isJsonNull() || root.isJsonPrimitive() && !isDocument(root.getAsJsonPrimitive())) {
+            return null;
+        }
+        return hash(root);
+    }
+
+    private static boolean isDocument(JsonPrimitive primitive) {
+        return primitive.isString() || primitive.isNumber() && JsonTreeComparator.NUMBER.matcher(primitive.toString()).matches();
+    }
+
+    private static StructuralHash hash(JsonElement jsonElement) {
+        if (jsonElement.isJsonObject()) {
+            long sumHigh = 0;
+            long sumLow = 0;
+            for (Map.Entry<String, JsonElement> member : jsonElement.getAsJsonObject().entrySet()) {
+                StructuralHash value = hash(member.getValue());
+                if (value == null) {
+                    return null;
+                }
+                StructuralHash hash = new Hasher(MEMBER).putString(member.getKey()).put(value.high, value.low).finish();
+                sumHigh += hash.high;
+                sumLow += hash.low;
+            }
+            return new Hasher(OBJECT).put(sumHigh, sumLow).finish();
+        }
+        if (jsonElement.isJsonArray()) {
+            Hasher hasher = new Hasher(ARRAY);
+            for (JsonElement arrayElement : jsonElement.getAsJsonArray()) {
+                StructuralHash value = hash(arrayElement);
+                if (value == null) {
+                    return null;
+                }
+                hasher.put(value.high, value.low);
+            }
+            return hasher.finish();
+        }
+        if (jsonElement.isJsonNull()) {
+            return new Hasher(NULL).finish();
+        }
+        JsonPrimitive primitive = jsonElement.getAsJsonPrimitive();
+        if (primitive.isBoolean()) {
+            return new Hasher(primitive.getAsBoolean() ? TRUE : FALSE).finish();
+        }
+        if (primitive.isString()) {
+            return new Hasher(STRING).putString(primitive.getAsString()).finish();
+        }
+        double value = primitive.getAsNumber().doubleValue();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return null;
+        }
+        return new Hasher(NUMBER).putString(primitive.toString()).finish();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        StructuralHash that = (StructuralHash) o;
+        return high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (high ^ (high >>> 32) ^ low ^ (low >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+
+    /**
+     * MurmurHash3 x64 128 bit state, taking 16 byte blocks.
+     */
+    private static final class Hasher {
+        private long h1;
+        private long h2;
+        private long length;
+
+        private Hasher(int type) {
+            h1 = type;
+            h2 = type;
+        }
+
+        private Hasher putString(String value) {
+            int i = 0;
+            for (; i + 8 <= value.length(); i += 8) {
+                put(chars(value, i), chars(value, i + 4));
+            }
+            if (i + 4 <= value.length()) {
+                put(chars(value, i), 0);
+                i += 4;
+            }
+            long tail = 0;
+            for (int shift = 0; i < value.length(); i++, shift += 16) {
+                tail |= (long) value.charAt(i) << shift;
+            }
+            return put(tail, value.length());
+        }
+
+        private static long chars(String value, int from) {
+            return value.charAt(from) | (long) value.charAt(from + 1) << 16 | (long) value.charAt(from + 2) << 32
+                    | (long) value.charAt(from + 3) << 48;
+        }
+
+        private Hasher put(long k1, long k2) {
+            h1 ^= Long.rotateLeft(k1 * C1, 31) * C2;
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= Long.rotateLeft(k2 * C2, 33) * C1;
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+            length += 16;
+            return this;
+        }
+
+        private StructuralHash finish() {
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix(h1);
+            h2 = fmix(h2);
+            h1 += h2;
+            h2 += h1;
+            return new StructuralHash(h1, h2);
+        }
+
+        private static long fmix(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
@@ -5,10 +5,13 @@ import static com.github.karsaig.approvalcrest.matcher.file.FileStoreMatcherUtil
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.net.URL;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Function;
 
 import com.github.karsaig.approvalcrest.FileMatcherConfig;
@@ -24,6 +27,7 @@ public abstract class AbstractDiagnosingFileMatcher<T, U extends AbstractDiagnos
     public static final int NUM_OF_HASH_CHARS = 6;
     protected final FileStoreMatcherUtils fileStoreMatcherUtils;
     protected final FileMatcherConfig fileMatcherConfig;
+    protected final ApprovalStore approvalStore;
     private final TestMetaInformation testMetaInformation;
     protected String fileName;
     protected String testMethodName;
@@ -35,11 +39,35 @@ public abstract class AbstractDiagnosingFileMatcher<T, U extends AbstractDiagnos
     protected String testClassNameHash;
 
     protected Path fileNameWithPath;
+    private String approvedResourceName;
 
     public AbstractDiagnosingFileMatcher(TestMetaInformation testMetaInformation, FileMatcherConfig fileMatcherConfig, FileStoreMatcherUtils fileStoreMatcherUtils) {
+        this(testMetaInformation, fileMatcherConfig, fileStoreMatcherUtils, null);
+    }
+
+    /**
+     * @param approvalStore stores the approved and not approved files, if null it is selected by the fileMatcherConfig
+     */
+    protected AbstractDiagnosingFileMatcher(TestMetaInformation testMetaInformation, FileMatcherConfig fileMatcherConfig, FileStoreMatcherUtils fileStoreMatcherUtils, ApprovalStore approvalStore) {
         this.testMetaInformation = Objects.requireNonNull(testMetaInformation, "TestMetaInformation must not be null!");
         this.fileStoreMatcherUtils = Objects.requireNonNull(fileStoreMatcherUtils, "FileStoreMatcherUtils must not be null!");
         this.fileMatcherConfig = Objects.requireNonNull(fileMatcherConfig, "FileMatcherConfig must not be null!");
+        this.approvalStore = approvalStore == null ? createApprovalStore(fileMatcherConfig, fileStoreMatcherUtils) : approvalStore;
+    }
+
+    private static ApprovalStore createApprovalStore(FileMatcherConfig fileMatcherConfig, FileStoreMatcherUtils fileStoreMatcherUtils) {
+        ApprovalStore approvalStore;
+        if (fileMatcherConfig.isPackedStoreEnabled()) {
+            approvalStore = new PackedApprovalStore(fileStoreMatcherUtils);
+        } else if (fileMatcherConfig.isSharedContentEnabled()) {
+            approvalStore = new ContentAddressedApprovalStore(fileStoreMatcherUtils);
+        } else {
+            approvalStore = new FileSystemApprovalStore(fileStoreMatcherUtils);
+        }
+        if (fileMatcherConfig.isInMemoryStoreEnabled()) {
+            approvalStore = InMemoryApprovalStore.dryRun(approvalStore, fileStoreMatcherUtils);
+        }
+        return approvalStore;
     }
 
     protected void init() {
@@ -55,17 +83,48 @@ public abstract class AbstractDiagnosingFileMatcher<T, U extends AbstractDiagnos
             fileName += SEPARATOR + uniqueId;
         }
         if (pathName == null) {
+            String directoryName;
             if(relativePathName == null) {
                 testClassNameHash = hashFileName(testClassName);
-                pathName = testMetaInformation.getTestClassPath().resolve(testClassNameHash);
+                directoryName = testClassNameHash;
             } else {
-                pathName = testMetaInformation.getTestClassPath().resolve(relativePathName);
+                directoryName = relativePathName;
+            }
+            if (fileMatcherConfig.isApprovedDirectoryEnabled()) {
+                Path approvedDirectory = testMetaInformation.getApprovedDirectory();
+                StringBuilder resourceName = new StringBuilder().append(approvedDirectory.getFileName()).append('/');
+                Path packageDirectory = approvedDirectory;
+                for (String packageName : getPackageNames()) {
+                    packageDirectory = packageDirectory.resolve(packageName);
+                    resourceName.append(packageName).append('/');
+                }
+                pathName = packageDirectory.resolve(directoryName);
+                approvedResourceName = resourceName.append(directoryName.replace(File.separatorChar, '/')).append('/').toString();
+            } else {
+                pathName = testMetaInformation.getTestClassPath().resolve(directoryName);
             }
         }
 
         fileNameWithPath = pathName.resolve(fileName);
     }
 
+    /**
+     * Records the approved file in the index of its directory, when it was read or written and the index is enabled.
+     * The index is a file too, so it is not written when the files are kept in memory.
+     */
+    private void recordInIndex() {
+        if (!fileMatcherConfig.isBuildIndexEnabled() || fileMatcherConfig.isInMemoryStoreEnabled()) {
+            return;
+        }
+        Path approvedFile = fileStoreMatcherUtils.getApproved(fileNameWithPath);
+        try {
+            ApprovedFileIndex.record(fileStoreMatcherUtils, approvedFile, getCommentLine());
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                    String.format("Exception while recording approved file %s in the index", approvedFile.toString()), e);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public U withUniqueId(String uniqueId) {
@@ -101,6 +160,24 @@ public abstract class AbstractDiagnosingFileMatcher<T, U extends AbstractDiagnos
         return (U) this;
     }
 
+    private String[] getPackageNames() {
+        String[] names = testClassName.split("\\.");
+        return Arrays.copyOf(names, names.length - 1);
+    }
+
+    /**
+     * Finds the approved file on the classpath, when the central approved directory is used.
+     *
+     * @param approvedFile the approved file on the file system
+     * @return the approved file on the classpath
+     */
+    private Optional<URL> findApprovedResource(Path approvedFile) {
+        if (approvedResourceName == null) {
+            return Optional.empty();
+        }
+        return ApprovedResources.find(approvedResourceName + approvedFile.getFileName());
+    }
+
     @SuppressWarnings("deprecation")
     private String hashFileName(String fileName) {
         return Hashing.sha1().hashString(fileName, Charsets.UTF_8).toString().substring(0, NUM_OF_HASH_CHARS);
@@ -129,15 +206,31 @@ public abstract class AbstractDiagnosingFileMatcher<T, U extends AbstractDiagnos
      * @return true if the not-approved file was created, false otherwise.
      */
     protected boolean createNotApprovedFileIfNotExists(Object toApprove, Supplier<String> content) {
+        return writeNotApprovedFileIfNotExists(toApprove, () -> ContentWriter.of(content.get()));
+    }
+
+    /**
+     * Creates a file suffixed with -not-approved for the developer to verify, and rename.
+     * The content is prepared before the file is opened, and streamed into the file.
+     *
+     * @param toApprove ?
+     * @param content Prepares the writer of the content to be added to the -not-approved file.
+     * @return true if the not-approved file was created, false otherwise.
+     */
+    protected boolean writeNotApprovedFileIfNotExists(Object toApprove, Supplier<ContentWriter> content) {
         Path approvedFile = fileStoreMatcherUtils.getApproved(fileNameWithPath);
 
-        if (Files.notExists(approvedFile)) {
-            try {
+        try {
+            if (!approvalStore.exists(fileNameWithPath) && !findApprovedResource(approvedFile).isPresent()) {
                 String approvedFileName = approvedFile.getFileName().toString();
-                String createdFileName = fileStoreMatcherUtils.createNotApproved(fileNameWithPath, content.get(), getCommentLine());
+                String createdFileName = approvalStore.createNotApproved(fileNameWithPath, content.get(), getCommentLine());
                 if (!fileMatcherConfig.isPassOnCreateEnabled()) {
                     String message;
-                    if (testClassNameHash == null) {
+                    if (fileMatcherConfig.isInMemoryStoreEnabled()) {
+                        String directory = testClassNameHash == null ? "" : testClassNameHash + File.separator;
+                        message = "Approved file '" + directory + approvedFileName + "' not found;\n"
+                                + " the actual content was only kept in memory (dry run), no not approved file was written.";
+                    } else if (testClassNameHash == null) {
                         message = "Not approved file created: '" + createdFileName
                                 + "';\n please verify its contents and rename it to '" + approvedFileName + "'.";
                     } else {
@@ -147,10 +240,10 @@ public abstract class AbstractDiagnosingFileMatcher<T, U extends AbstractDiagnos
                     fail(message);
                 }
                 return true;
-            } catch (IOException e) {
-                throw new IllegalStateException(
-                        String.format("Exception while creating not approved file %s", toApprove.toString()), e);
             }
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                    String.format("Exception while creating not approved file %s", toApprove.toString()), e);
         }
         return false;
     }
@@ -160,24 +253,55 @@ public abstract class AbstractDiagnosingFileMatcher<T, U extends AbstractDiagnos
     }
 
     protected void overwriteApprovedFile(Object actual, Supplier<String> content) {
-        Path approvedFile = fileStoreMatcherUtils.getApproved(fileNameWithPath);
-        if (Files.exists(approvedFile)) {
-            try {
-                fileStoreMatcherUtils.overwriteApprovedFile(fileNameWithPath, content.get(), getCommentLine());
-            } catch (IOException e) {
-                throw new IllegalStateException(
-                        String.format("Exception while overwriting approved file %s", actual.toString()), e);
+        writeApprovedFile(actual, () -> ContentWriter.of(content.get()));
+    }
+
+    protected void writeApprovedFile(Object actual, Supplier<ContentWriter> content) {
+        boolean exists;
+        try {
+            exists = approvalStore.exists(fileNameWithPath);
+            if (exists) {
+                approvalStore.overwrite(fileNameWithPath, content.get(), getCommentLine());
+                recordInIndex();
             }
-        } else {
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                    String.format("Exception while overwriting approved file %s", actual.toString()), e);
+        }
+        if (!exists) {
             throw new IllegalStateException("Approved file " + fileNameWithPath + " must exist in order to overwrite it! ");
         }
     }
 
+    /**
+     * Reads the approved file and processes its content. The processed content is cached while the file is unchanged
+     * and shared by the matchers using the same processor instance, so the processor must be a constant and its result
+     * must not be changed.
+     *
+     * @param processorAfterRead processes the content of the approved file
+     * @return the processed content
+     */
     protected <V> V getExpectedFromFile(Function<String, V> processorAfterRead) {
         Path approvedFile = fileStoreMatcherUtils.getApproved(fileNameWithPath);
         try {
-            String fileContent = fileStoreMatcherUtils.readFile(approvedFile);
-            return processorAfterRead.apply(fileContent);
+            Optional<V> expected = approvalStore.read(fileNameWithPath, processorAfterRead);
+            if (expected.isPresent()) {
+                recordInIndex();
+                return expected.get();
+            }
+            Optional<URL> approvedResource = findApprovedResource(approvedFile);
+            if (approvedResource.isPresent()) {
+                String content = fileStoreMatcherUtils.readResource(approvedResource.get());
+                Optional<String> sharedContentName = fileMatcherConfig.isSharedContentEnabled()
+                        ? ContentAddressedApprovalStore.getSharedContentName(content) : Optional.empty();
+                if (sharedContentName.isPresent()) {
+                    String sharedResourceName = approvedResourceName + ContentAddressedApprovalStore.SHARED_DIRECTORY_NAME + "/" + sharedContentName.get();
+                    URL sharedResource = ApprovedResources.find(sharedResourceName).orElseThrow(() -> new NoSuchFileException(sharedResourceName));
+                    content = fileStoreMatcherUtils.readResource(sharedResource);
+                }
+                return processorAfterRead.apply(content);
+            }
+            throw new NoSuchFileException(approvedFile.toString());
         } catch (IOException e) {
             throw new IllegalStateException(
                     String.format("Exception while initializing expected from file: %s", approvedFile.toString()), e);
@@ -0,0 +1,67 @@
+package com.github.karsaig.approvalcrest.matcher.file;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Storage of the approved and not approved files of the file matchers.
+ * <p>
+ * The files are identified by the path of the file without the approved or not approved suffix and the extension, as
+ * built by the matchers, the implementations use {@link FileStoreMatcherUtils} to name them. The implementations
+ * shipped are {@link FileSystemApprovalStore}, which keeps every file next to the tests, {@link PackedApprovalStore},
+ * which packs the approved files of a directory into one file, {@link ContentAddressedApprovalStore}, which stores the
+ * content of identical approved files once, and {@link InMemoryApprovalStore}, which keeps the written files in memory. The matchers select them by the {@link com.github.karsaig.approvalcrest.FileMatcherConfig}.
+ * <p>
+ * The implementations are shared by the matchers, so they have to be safe to use from several threads.
+ */
+public interface ApprovalStore {
+
+    /**
+     * @param fileNameWithPath the name of the file with full path, without suffix and extension
+     * @return true if the approved file exists
+     * @throws IOException exception thrown when failed to check the file
+     */
+    boolean exists(Path fileNameWithPath) throws IOException;
+
+    /**
+     * Reads the approved file and processes its content. The processed content may be cached while the file is
+     * unchanged, and shared by the matchers using the same processor instance.
+     *
+     * @param fileNameWithPath   the name of the file with full path, without suffix and extension
+     * @param processorAfterRead processes the content of the approved file without the comment line
+     * @return the processed content, or empty if the approved file does not exist
+     * @throws IOException exception thrown when failed to read the file
+     */
+    <V> Optional<V> read(Path fileNameWithPath, Function<String, V> processorAfterRead) throws IOException;
+
+    /**
+     * Creates the not approved file for the developer to verify, and approve.
+     *
+     * @param fileNameWithPath the name of the file with full path, without suffix and extension
+     * @param content          writes the content of the file
+     * @param comment          the first line of file
+     * @return the name of the created file
+     * @throws IOException exception thrown when failed to create the file
+     */
+    String createNotApproved(Path fileNameWithPath, ContentWriter content, String comment) throws IOException;
+
+    /**
+     * Replaces the content of the approved file.
+     *
+     * @param fileNameWithPath the name of the file with full path, without suffix and extension
+     * @param content          writes the content of the file
+     * @param comment          the first line of file
+     * @throws IOException exception thrown when failed to write the file
+     */
+    void overwrite(Path fileNameWithPath, ContentWriter content, String comment) throws IOException;
+
+    /**
+     * @param directory the directory of the approved files
+     * @return the names of the approved files in the directory, like {@code 11b2ef-approved.json}
+     * @throws IOException exception thrown when failed to list the files
+     */
+    Set<String> list(Path directory) throws IOException;
+}
@@ -0,0 +1,93 @@
+package com.github.karsaig.approvalcrest.matcher.file;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+import java.util.function.Function;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * JVM wide cache of the processed content of the approved files, so tests sharing an approved file, like parameterized
+ * and repeated tests, read and parse it only once.
+ * <p>
+ * Entries are kept per absolute path together with the modification time, size and file key of the file they were read
+ * from, and are only used while those are unchanged. Overwriting an approved file in place invalidates its entry
+ * explicitly, so rewrites within the resolution of the modification time are not missed either. The cached values are
+ * shared between the matchers, so they must not be changed after processing. The least recently used entries are
+ * evicted once the estimated heap taken by the cached values reaches {@value #MAX_CACHED_BYTES} bytes. The values are
+ * usually parsed Json trees, which take several times the size of their file, so each entry is estimated at
+ * {@value #HEAP_BYTES_PER_FILE_BYTE} times the size of its file.
+ */
+final class ApprovedFileCache {
+    private static final long MAX_CACHED_BYTES = 64L * 1024 * 1024;
+    private static final int HEAP_BYTES_PER_FILE_BYTE = 8;
+
+    private static final Cache<Path, Entry> CACHE = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_CACHED_BYTES)
+            .weigher((Path file, Entry entry) -> entry.weight)
+            .build();
+
+    private ApprovedFileCache() {
+    }
+
+    /**
+     * @param fileStoreMatcherUtils reads the content of the file
+     * @param file                  the approved file
+     * @param processorAfterRead    processes the content, the cached value is only used for the same processor
+     * @return the processed content of the file
+     * @throws IOException if the file can not be read
+     */
+    @SuppressWarnings("unchecked")
+    static <V> V get(FileStoreMatcherUtils fileStoreMatcherUtils, Path file, Function<String, V> processorAfterRead) throws IOException {
+        Path key = file.toAbsolutePath();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        Entry entry = CACHE.getIfPresent(key);
+        if (entry != null && entry.isValidFor(key.getFileSystem(), attributes, processorAfterRead)) {
+            return (V) entry.value;
+        }
+        V value = processorAfterRead.apply(fileStoreMatcherUtils.readFile(file));
+        CACHE.put(key, new Entry(key.getFileSystem(), attributes, processorAfterRead, value));
+        return value;
+    }
+
+    /**
+     * Drops the cached content of the file, called after it is written.
+     */
+    static void invalidate(Path file) {
+        CACHE.invalidate(file.toAbsolutePath());
+    }
+
+    private static final class Entry {
+        private final FileSystem fileSystem;
+        private final FileTime lastModifiedTime;
+        private final long size;
+        private final Object fileKey;
+        private final Function<String, ?> processorAfterRead;
+        private final Object value;
+        private final int weight;
+
+        private Entry(FileSystem fileSystem, BasicFileAttributes attributes, Function<String, ?> processorAfterRead, Object value) {
+            this.fileSystem = fileSystem;
+            this.lastModifiedTime = attributes.lastModifiedTime();
+            this.size = attributes.size();
+            this.fileKey = attributes.fileKey();
+            this.processorAfterRead = processorAfterRead;
+            this.value = value;
+            this.weight = (int) Math.min(Integer.MAX_VALUE, size * HEAP_BYTES_PER_FILE_BYTE);
+        }
+
+        private boolean isValidFor(FileSystem fileSystem, BasicFileAttributes attributes, Function<String, ?> processorAfterRead) {
+            return this.fileSystem == fileSystem
+                    && this.processorAfterRead == processorAfterRead
+                    && size == attributes.size()
+                    && lastModifiedTime.equals(attributes.lastModifiedTime())
+                    && Objects.equals(fileKey, attributes.fileKey());
+        }
+    }
+}
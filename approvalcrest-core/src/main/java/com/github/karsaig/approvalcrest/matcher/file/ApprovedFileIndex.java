@@ -0,0 +1,149 @@
+package com.github.karsaig.approvalcrest.matcher.file;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Index of the approved files of a directory, mapping each approved file to the test it belongs to, so tooling does
+ * not have to read the header of every approved file.
+ * <p>
+ * The index is kept in the {@value #INDEX_FILE_NAME} file of the directory, one {@code fileName<TAB>Class.method}
+ * line per approved file, sorted by file name. When {@link com.github.karsaig.approvalcrest.FileMatcherConfig#isBuildIndexEnabled()}
+ * is enabled, the matchers record their approved file in the index when they read or write it, so tests without an
+ * approved file are not recorded. Each JVM reads the index of a directory once, and only writes it when an entry is
+ * added or changed, merging it with the entries written by other JVMs in the meantime.
+ * <p>
+ * Entries without an approved file are reported by {@link #getStaleFileNames()}, approved files without an entry by
+ * {@link #getOrphanedFileNames()}, both based on the approved files listed by the {@link ApprovalStore} of the
+ * directory.
+ */
+public final class ApprovedFileIndex {
+
+    public static final String INDEX_FILE_NAME = "approved-files.index";
+    private static final String INDEX_COMMENT = "approvalcrest approved file index";
+    private static final char ENTRY_SEPARATOR = '\t';
+    private static final ConcurrentMap<Path, Map<String, String>> RECORDED = new ConcurrentHashMap<>();
+
+    private final Map<String, String> testNamesByFileName;
+    private final Map<String, List<String>> fileNamesByTestName;
+    private final Set<String> approvedFileNames;
+
+    private ApprovedFileIndex(Map<String, String> testNamesByFileName, Set<String> approvedFileNames) {
+        this.testNamesByFileName = testNamesByFileName;
+        this.approvedFileNames = approvedFileNames;
+        Map<String, List<String>> fileNames = new HashMap<>();
+        testNamesByFileName.forEach((fileName, testName) -> fileNames.computeIfAbsent(testName, k -> new ArrayList<>()).add(fileName));
+        this.fileNamesByTestName = fileNames;
+    }
+
+    /**
+     * Reads the index of the directory and lists the approved files in it.
+     *
+     * @param directory     the directory of the approved files
+     * @param approvalStore the store of the approved files of the directory
+     * @return the index, which is empty if the directory has no index file
+     * @throws IOException if the index or the approved files can not be read
+     */
+    public static ApprovedFileIndex read(Path directory, ApprovalStore approvalStore) throws IOException {
+        Map<String, String> entries;
+        try {
+            entries = parse(new String(Files.readAllBytes(directory.resolve(INDEX_FILE_NAME)), UTF_8));
+        } catch (NoSuchFileException e) {
+            entries = Collections.emptyMap();
+        }
+        return new ApprovedFileIndex(entries, new TreeSet<>(approvalStore.list(directory)));
+    }
+
+    /**
+     * @param approvedFileName the name of the approved file, like {@code 11b2ef-approved.json}
+     * @return the test of the approved file, in the {@code Class.method} form of the header of the file
+     */
+    public Optional<String> getTestName(String approvedFileName) {
+        return Optional.ofNullable(testNamesByFileName.get(approvedFileName));
+    }
+
+    /**
+     * @param testClassName  the name of the test class
+     * @param testMethodName the name of the test method
+     * @return the names of the approved files of the test, more than one if it uses unique ids
+     */
+    public List<String> getApprovedFileNames(String testClassName, String testMethodName) {
+        return Collections.unmodifiableList(fileNamesByTestName.getOrDefault(testClassName + "." + testMethodName, Collections.emptyList()));
+    }
+
+    /**
+     * @return the names of the indexed files which do not exist in the directory
+     */
+    public Set<String> getStaleFileNames() {
+        return testNamesByFileName.keySet().stream()
+                .filter(fileName -> !approvedFileNames.contains(fileName))
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    /**
+     * @return the names of the approved files of the directory which are not indexed
+     */
+    public Set<String> getOrphanedFileNames() {
+        return approvedFileNames.stream()
+                .filter(fileName -> !testNamesByFileName.containsKey(fileName))
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    /**
+     * Records the test of the approved file in the index of its directory, unless this JVM has already seen the same
+     * entry there.
+     *
+     * @param fileStoreMatcherUtils updates the index file
+     * @param approvedFile          the approved file, which does not have to exist yet
+     * @param testName              the test of the approved file, in the {@code Class.method} form
+     * @throws IOException if the index can not be updated
+     */
+    static void record(FileStoreMatcherUtils fileStoreMatcherUtils, Path approvedFile, String testName) throws IOException {
+        Path directory = approvedFile.toAbsolutePath().getParent();
+        String fileName = approvedFile.getFileName().toString();
+        Map<String, String> recorded = RECORDED.computeIfAbsent(directory, k -> new ConcurrentHashMap<>());
+        if (testName.equals(recorded.get(fileName))) {
+            return;
+        }
+        String content = fileStoreMatcherUtils.updateFile(directory.resolve(INDEX_FILE_NAME), current -> {
+            Map<String, String> entries = parse(current);
+            entries.put(fileName, testName);
+            return format(entries);
+        }, INDEX_COMMENT);
+        recorded.putAll(parse(content));
+    }
+
+    private static SortedMap<String, String> parse(String content) {
+        SortedMap<String, String> entries = new TreeMap<>();
+        for (String line : content.split("\n")) {
+            int separator = line.indexOf(ENTRY_SEPARATOR);
+            if (0 < separator) {
+                entries.put(line.substring(0, separator), line.substring(separator + 1).trim());
+            }
+        }
+        return entries;
+    }
+
+    private static String format(Map<String, String> entries) {
+        StringBuilder content = new StringBuilder();
+        entries.forEach((fileName, testName) -> content.append(fileName).append(ENTRY_SEPARATOR).append(testName).append('\n'));
+        return content.toString();
+    }
+}
@@ -0,0 +1,41 @@
+package com.github.karsaig.approvalcrest.matcher.file;
+
+import java.net.URL;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Looks up the approved files on the classpath, like from a test-jar, when they are not on the file system.
+ * <p>
+ * The result of each lookup is cached per class loader, so every approved file is searched on the classpath only once,
+ * even when it is missing. The class loaders are held weakly, they can be unloaded together with their tests.
+ */
+final class ApprovedResources {
+
+    private static final LoadingCache<ClassLoader, ConcurrentMap<String, Optional<URL>>> RESOURCES = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(CacheLoader.from(() -> new ConcurrentHashMap<>()));
+
+    private ApprovedResources() {
+    }
+
+    /**
+     * @param resourceName the name of the approved file on the classpath, separated by slashes
+     * @return the approved file found by the context class loader of the current thread, or if it is not set, by the
+     * class loader of the library
+     */
+    static Optional<URL> find(String resourceName) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = ApprovedResources.class.getClassLoader();
+        }
+        ClassLoader resourceLoader = classLoader;
+        return RESOURCES.getUnchecked(resourceLoader)
+                .computeIfAbsent(resourceName, name -> Optional.ofNullable(resourceLoader.getResource(name)));
+    }
+}
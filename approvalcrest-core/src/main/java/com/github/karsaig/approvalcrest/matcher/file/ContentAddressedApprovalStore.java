@@ -0,0 +1,168 @@
+package com.github.karsaig.approvalcrest.matcher.file;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Stores the content of identical approved files only once.
+ * <p>
+ * The content of the approved files is kept in the {@value #SHARED_DIRECTORY_NAME} directory next to them, named after
+ * its hash, like {@code shared/3f2a...-approved.json}. The approved file of a test only holds its comment line and a
+ * reference to the shared content:
+ * <pre>
+ * /*Class.method*&#47;
+ * &#64;approvalcrest-shared-content 3f2a...-approved.json
+ * </pre>
+ * The shared content is read through {@link ApprovedFileCache}, so each distinct content is read and processed once,
+ * however many approved files refer to it. The references are only resolved by this store. Not approved
+ * files are written with their full content, so they can be reviewed and approved by renaming them. Approved files
+ * with full content, like the renamed not approved files, are read as they are, so reading never changes any file.
+ * They are moved to the shared content when they are overwritten, and every one of a directory is moved by
+ * {@link #share(Path)}, which turns a directory of an earlier store into shared content.
+ * <p>
+ * Shared content which is not referred to anymore is not deleted.
+ */
+public class ContentAddressedApprovalStore implements ApprovalStore {
+
+    public static final String SHARED_DIRECTORY_NAME = "shared";
+    private static final String SHARED_CONTENT_MARKER = "@approvalcrest-shared-content ";
+    private static final String SHARED_CONTENT_COMMENT = "approvalcrest shared content";
+    private static final String COMMENT_START = "/*";
+    private static final String COMMENT_END = "*/\n";
+    private static final int NUM_OF_HASH_CHARS = 32;
+
+    private final FileStoreMatcherUtils fileStoreMatcherUtils;
+    private final FileSystemApprovalStore fileSystemApprovalStore;
+
+    public ContentAddressedApprovalStore(FileStoreMatcherUtils fileStoreMatcherUtils) {
+        this.fileStoreMatcherUtils = Objects.requireNonNull(fileStoreMatcherUtils, "FileStoreMatcherUtils must not be null!");
+        this.fileSystemApprovalStore = new FileSystemApprovalStore(fileStoreMatcherUtils);
+    }
+
+    @Override
+    public boolean exists(Path fileNameWithPath) {
+        return fileSystemApprovalStore.exists(fileNameWithPath);
+    }
+
+    @Override
+    public <V> Optional<V> read(Path fileNameWithPath, Function<String, V> processorAfterRead) throws IOException {
+        Path approvedFile = fileStoreMatcherUtils.getApproved(fileNameWithPath);
+        Optional<String> sharedContentName;
+        try {
+            sharedContentName = getSharedContentName(fileStoreMatcherUtils.readFile(approvedFile));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+        if (!sharedContentName.isPresent()) {
+            return fileSystemApprovalStore.read(fileNameWithPath, processorAfterRead);
+        }
+        return Optional.of(ApprovedFileCache.get(fileStoreMatcherUtils, sharedDirectoryOf(approvedFile).resolve(sharedContentName.get()), processorAfterRead));
+    }
+
+    @Override
+    public String createNotApproved(Path fileNameWithPath, ContentWriter content, String comment) throws IOException {
+        return fileSystemApprovalStore.createNotApproved(fileNameWithPath, content, comment);
+    }
+
+    @Override
+    public void overwrite(Path fileNameWithPath, ContentWriter content, String comment) throws IOException {
+        StringWriter writer = new StringWriter();
+        content.writeTo(writer);
+        Path approvedFile = fileStoreMatcherUtils.getApproved(fileNameWithPath);
+        fileStoreMatcherUtils.overwriteApprovedFile(fileNameWithPath, share(approvedFile, writer.toString()), comment);
+        ApprovedFileCache.invalidate(approvedFile);
+    }
+
+    @Override
+    public Set<String> list(Path directory) throws IOException {
+        return fileSystemApprovalStore.list(directory);
+    }
+
+    /**
+     * Moves the content of the approved files of the directory which hold their full content, like the renamed not
+     * approved files, to the shared content, and replaces them with a reference to it. Their comment is kept.
+     *
+     * @param directory the directory of the approved files
+     * @return the names of the approved files replaced with a reference
+     * @throws IOException if a file can not be read or written
+     */
+    public Set<String> share(Path directory) throws IOException {
+        Set<String> shared = new TreeSet<>();
+        for (String fileName : list(directory)) {
+            Path approvedFile = directory.resolve(fileName);
+            boolean replaced = fileStoreMatcherUtils.underWriteLock(approvedFile, () -> {
+                String fileContent;
+                try {
+                    fileContent = new String(Files.readAllBytes(approvedFile), UTF_8);
+                } catch (NoSuchFileException e) {
+                    return false;
+                }
+                String content = fileStoreMatcherUtils.stripComment(fileContent);
+                if (getSharedContentName(content).isPresent()) {
+                    return false;
+                }
+                String comment = content.length() < fileContent.length()
+                        ? fileContent.substring(COMMENT_START.length(), fileContent.length() - content.length() - COMMENT_END.length()) : "";
+                fileStoreMatcherUtils.replaceAtomically(approvedFile, ContentWriter.of(share(approvedFile, content)), comment);
+                return true;
+            });
+            if (replaced) {
+                ApprovedFileCache.invalidate(approvedFile);
+                shared.add(fileName);
+            }
+        }
+        return Collections.unmodifiableSet(shared);
+    }
+
+    /**
+     * @param content the content of an approved file without the comment line
+     * @return the name of the shared content file in the {@value #SHARED_DIRECTORY_NAME} directory, if the approved file
+     * refers to one
+     */
+    static Optional<String> getSharedContentName(String content) {
+        if (content.startsWith(SHARED_CONTENT_MARKER)) {
+            return Optional.of(content.substring(SHARED_CONTENT_MARKER.length()).trim());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Writes the content to the shared content next to the approved file, unless it is already there.
+     *
+     * @return the reference to the shared content, the content of the approved file referring to it
+     */
+    private String share(Path approvedFile, String content) throws IOException {
+        String hash = Hashing.sha256().hashString(content, UTF_8).toString().substring(0, NUM_OF_HASH_CHARS);
+        Path sharedContent = fileStoreMatcherUtils.getApproved(sharedDirectoryOf(approvedFile).resolve(hash));
+        if (Files.notExists(sharedContent)) {
+            fileStoreMatcherUtils.underWriteLock(sharedContent, () -> {
+                if (Files.notExists(sharedContent)) {
+                    fileStoreMatcherUtils.replaceAtomically(sharedContent, ContentWriter.of(content), SHARED_CONTENT_COMMENT);
+                }
+                return null;
+            });
+        }
+        return SHARED_CONTENT_MARKER + sharedContent.getFileName();
+    }
+
+    /**
+     * @param approvedFile the approved file
+     * @return the directory of the content shared by the approved files next to the approved file
+     */
+    static Path sharedDirectoryOf(Path approvedFile) {
+        return approvedFile.toAbsolutePath().getParent().resolve(SHARED_DIRECTORY_NAME);
+    }
+}
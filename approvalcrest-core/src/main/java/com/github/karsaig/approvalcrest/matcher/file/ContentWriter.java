@@ -0,0 +1,24 @@
+package com.github.karsaig.approvalcrest.matcher.file;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes the content of an approved or not approved file directly to the file's {@link Writer},
+ * so that the content does not have to be rendered to a String first.
+ */
+@FunctionalInterface
+public interface ContentWriter {
+
+    /**
+     * Writes the content to the given writer. The writer must not be closed.
+     *
+     * @param writer the writer of the file
+     * @throws IOException exception thrown when failed to write the content
+     */
+    void writeTo(Writer writer) throws IOException;
+
+    static ContentWriter of(String content) {
+        return writer -> writer.write(content);
+    }
+}
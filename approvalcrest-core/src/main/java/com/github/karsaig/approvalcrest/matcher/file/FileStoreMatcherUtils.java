@@ -10,21 +10,42 @@ import static java.nio.file.attribute.PosixFilePermission.OWNER_WRITE;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.PosixFilePermissions;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.function.UnaryOperator;
 
 import com.github.karsaig.approvalcrest.FileMatcherConfig;
 import com.github.karsaig.approvalcrest.matcher.JsonMatcher;
 
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.Striped;
+
 /**
  * Utility class with methods for creating the JSON files for
  * {@link JsonMatcher}.
+ * <p>
+ * Files are written to a temporary file next to them, which is then moved in their place atomically, so readers never
+ * see a partially written file. Writers of the same file are serialised by a lock within the JVM, and on the default
+ * file system also by a {@link FileChannel} lock on the {@value #LOCK_FILE_NAME} file in the directory of the file,
+ * which guards against other JVMs, like parallel test forks. The lock file is shared by the files of the directory, so
+ * only the writers of the same directory wait for each other, and it is reused by every later run. Where the lock file
+ * can not be created or opened, like in a directory of another user, the files are only locked within the JVM.
  *
  * @author Andras_Gyuro
  */
@@ -35,6 +56,10 @@ public class FileStoreMatcherUtils {
     private static final String NOT_APPROVED_NAME_PART = "not-approved";
     private static final Set<PosixFilePermission> APPROVED_FILE_PERMISSIONS = Collections.unmodifiableSet(EnumSet.of(OTHERS_READ, OTHERS_WRITE, GROUP_READ, GROUP_WRITE, OWNER_READ, OWNER_WRITE));
     private static final Set<PosixFilePermission> APPROVED_DIRECTORY_PERMISSIONS = Collections.unmodifiableSet(EnumSet.allOf(PosixFilePermission.class));
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+    public static final String LOCK_FILE_NAME = "approved-files.lock";
+    private static final int NUM_OF_WRITE_LOCKS = 64;
+    private static final Striped<Lock> WRITE_LOCKS = Striped.lock(NUM_OF_WRITE_LOCKS);
     private final String fileType;
     private final String fileExtension;
     private final FileMatcherConfig fileMatcherConfig;
@@ -58,34 +83,195 @@ public class FileStoreMatcherUtils {
      */
     public String createNotApproved(Path fileNameWithPath, String jsonObject, String comment)
             throws IOException {
-        Path file = getFullFileName(fileNameWithPath, false);
-        Path parent = file.getParent();
-        if (isPosixCompatible(parent)) {
-            Files.createDirectories(parent, PosixFilePermissions.asFileAttribute(APPROVED_DIRECTORY_PERMISSIONS));
-        } else {
-            Files.createDirectories(parent);
-        }
-        return writeToFile(file, jsonObject, comment);
+        return createNotApproved(fileNameWithPath, ContentWriter.of(jsonObject), comment);
+    }
+
+    /**
+     * Creates file with '-not-approved' suffix and .json extension and streams
+     * the content in it.
+     *
+     * @param fileNameWithPath specifies the name of the file with full path (relative to
+     *                         project root)
+     * @param content          writes the file's content
+     * @param comment          the first line of file
+     * @return the filename
+     * @throws IOException exception thrown when failed to create the file
+     */
+    public String createNotApproved(Path fileNameWithPath, ContentWriter content, String comment)
+            throws IOException {
+        return writeToFile(getFullFileName(fileNameWithPath, false), content, comment);
     }
 
     public String overwriteApprovedFile(Path fileNameWithPath, String jsonObject, String comment) throws IOException {
-        return writeToFile(getFullFileName(fileNameWithPath, true), jsonObject, comment);
+        return overwriteApprovedFile(fileNameWithPath, ContentWriter.of(jsonObject), comment);
+    }
+
+    public String overwriteApprovedFile(Path fileNameWithPath, ContentWriter content, String comment) throws IOException {
+        return writeToFile(getFullFileName(fileNameWithPath, true), content, comment);
+    }
+
+    private String writeToFile(Path file, ContentWriter content, String comment) throws IOException {
+        underWriteLock(file, () -> {
+            replaceAtomically(file, content, comment);
+            return null;
+        });
+        return file.getFileName().toString();
     }
 
-    private String writeToFile(Path file, String jsonObject, String comment) throws IOException {
-        try (BufferedWriter writer = Files.newBufferedWriter(file, UTF_8)) {
-            writer.write("/*" + comment + "*/");
-            writer.write("\n");
-            writer.write(jsonObject);
+    /**
+     * Updates the content of the file under the same locks as the writers, so concurrent updates from this or other
+     * JVMs are not lost. The file is only written if the update changes its content.
+     *
+     * @param file    the file to update, which is created if it does not exist
+     * @param update  calculates the new content from the current one, which is empty if the file does not exist
+     * @param comment the first line of file
+     * @return the updated content
+     * @throws IOException exception thrown when failed to read or write the file
+     */
+    String updateFile(Path file, UnaryOperator<String> update, String comment) throws IOException {
+        return underWriteLock(file, () -> {
+            String current;
+            try {
+                current = readFile(file);
+            } catch (NoSuchFileException e) {
+                current = "";
+            }
+            String updated = update.apply(current);
+            if (!updated.equals(current)) {
+                replaceAtomically(file, ContentWriter.of(updated), comment);
+            }
+            return updated;
+        });
+    }
+
+    /**
+     * Runs the action holding the locks of the file, which serialise the writers of the file within and across JVMs.
+     * The locks are shared with other files and are not reentrant across JVMs, the action must not lock any file.
+     * Within the JVM the lock is chosen by the directory of the file, so a JVM never locks the lock file of a directory
+     * twice.
+     */
+    <R> R underWriteLock(Path file, WriteAction<R> action) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        int stripe = Math.floorMod(Hashing.sha256().hashString(directory.toString(), UTF_8).asInt(), NUM_OF_WRITE_LOCKS);
+        Lock lock = WRITE_LOCKS.getAt(stripe);
+        lock.lock();
+        try {
+            FileChannel lockChannel = lockAgainstOtherProcesses(file, directory);
+            try {
+                return action.run();
+            } finally {
+                if (lockChannel != null) {
+                    lockChannel.close();
+                }
+            }
+        } finally {
+            lock.unlock();
         }
-        if (isPosixCompatible(file)) {
-            Files.setPosixFilePermissions(file, APPROVED_FILE_PERMISSIONS);
+    }
+
+    void replaceAtomically(Path file, ContentWriter content, String comment) throws IOException {
+        Path temporaryFile = createTemporaryFile(file);
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile, UTF_8)) {
+                writer.write("/*" + comment + "*/");
+                writer.write("\n");
+                content.writeTo(writer);
+            }
+            if (isPosixCompatible(temporaryFile)) {
+                Files.setPosixFilePermissions(temporaryFile, APPROVED_FILE_PERMISSIONS);
+            }
+            try {
+                Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Creates the temporary file in the directory of the file, creating the directory first if it does not exist yet,
+     * so the directories are only checked when they are missing.
+     */
+    private Path createTemporaryFile(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        String prefix = file.getFileName().toString() + SEPARATOR;
+        try {
+            return Files.createTempFile(parent, prefix, TEMPORARY_FILE_SUFFIX);
+        } catch (NoSuchFileException e) {
+            createDirectories(parent);
+            return Files.createTempFile(parent, prefix, TEMPORARY_FILE_SUFFIX);
+        }
+    }
+
+    private void createDirectories(Path directory) throws IOException {
+        if (isPosixCompatible(directory)) {
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(APPROVED_DIRECTORY_PERMISSIONS));
+        } else {
+            Files.createDirectories(directory);
+        }
+    }
+
+    /**
+     * Locks the lock file of the directory of the file. Files of other file systems, like in memory ones, can not be
+     * shared with other processes and are not locked. The lock of the directory within the JVM must be held, as a JVM
+     * can not lock the same file twice.
+     *
+     * @return the channel holding the lock, which releases it when closed, or null if the file is not locked, either
+     * because it is not on the default file system or because the lock file can not be opened
+     */
+    private FileChannel lockAgainstOtherProcesses(Path file, Path directory) throws IOException {
+        if (file.getFileSystem() != FileSystems.getDefault()) {
+            return null;
+        }
+        FileChannel lockChannel = openLockFile(directory.resolve(LOCK_FILE_NAME));
+        if (lockChannel == null) {
+            return null;
+        }
+        try {
+            lockChannel.lock();
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+        return lockChannel;
+    }
+
+    /**
+     * @return the channel of the lock file, or null if it can not be created or opened
+     */
+    private FileChannel openLockFile(Path lockFile) {
+        try {
+            try {
+                return FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            } catch (NoSuchFileException e) {
+                createDirectories(lockFile.getParent());
+                return FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            }
+        } catch (IOException e) {
+            return null;
         }
-        return file.getFileName().toString();
     }
 
     public String readFile(Path file) throws IOException {
-        String fileContent = new String(Files.readAllBytes(file), UTF_8);
+        return stripComment(new String(Files.readAllBytes(file), UTF_8));
+    }
+
+    /**
+     * Reads an approved file from the classpath, like {@link #readFile(Path)} reads it from the file system.
+     *
+     * @param resource the approved file on the classpath
+     * @return the content of the file without the comment line
+     * @throws IOException exception thrown when failed to read the resource
+     */
+    public String readResource(URL resource) throws IOException {
+        try (InputStream inputStream = resource.openStream()) {
+            return stripComment(new String(ByteStreams.toByteArray(inputStream), UTF_8));
+        }
+    }
+
+    String stripComment(String fileContent) {
         if (fileContent.startsWith("/*")) {
             int index = fileContent.indexOf("*/\n");
             if (-1 < index) {
@@ -105,6 +291,16 @@ public class FileStoreMatcherUtils {
         return getFullFileName(fileNameWithPath, true);
     }
 
+    /**
+     * @param file the file to check
+     * @return true if the name of the file has the '-approved' suffix and the extension of the file type
+     */
+    public boolean isApproved(Path file) {
+        String fileName = file.getFileName().toString();
+        return fileName.endsWith(SEPARATOR + APPROVED_NAME_PART + fileExtension)
+                && !fileName.endsWith(SEPARATOR + NOT_APPROVED_NAME_PART + fileExtension);
+    }
+
     public Path getFullFileName(Path fileName, boolean approved) {
         return getFileNameWithExtension(fileName, approved);
     }
@@ -131,4 +327,9 @@ public class FileStoreMatcherUtils {
     private boolean isPosixCompatible(Path path) {
         return path.getFileSystem().supportedFileAttributeViews().contains("posix");
     }
+
+    @FunctionalInterface
+    interface WriteAction<R> {
+        R run() throws IOException;
+    }
 }
@@ -0,0 +1,66 @@
+package com.github.karsaig.approvalcrest.matcher.file;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps every approved and not approved file in its own file, written by {@link FileStoreMatcherUtils}. The processed
+ * content of the approved files is cached by {@link ApprovedFileCache}.
+ */
+public class FileSystemApprovalStore implements ApprovalStore {
+
+    private final FileStoreMatcherUtils fileStoreMatcherUtils;
+
+    public FileSystemApprovalStore(FileStoreMatcherUtils fileStoreMatcherUtils) {
+        this.fileStoreMatcherUtils = Objects.requireNonNull(fileStoreMatcherUtils, "FileStoreMatcherUtils must not be null!");
+    }
+
+    @Override
+    public boolean exists(Path fileNameWithPath) {
+        return Files.exists(fileStoreMatcherUtils.getApproved(fileNameWithPath));
+    }
+
+    @Override
+    public <V> Optional<V> read(Path fileNameWithPath, Function<String, V> processorAfterRead) throws IOException {
+        try {
+            return Optional.of(ApprovedFileCache.get(fileStoreMatcherUtils, fileStoreMatcherUtils.getApproved(fileNameWithPath), processorAfterRead));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public String createNotApproved(Path fileNameWithPath, ContentWriter content, String comment) throws IOException {
+        return fileStoreMatcherUtils.createNotApproved(fileNameWithPath, content, comment);
+    }
+
+    @Override
+    public void overwrite(Path fileNameWithPath, ContentWriter content, String comment) throws IOException {
+        try {
+            fileStoreMatcherUtils.overwriteApprovedFile(fileNameWithPath, content, comment);
+        } finally {
+            ApprovedFileCache.invalidate(fileStoreMatcherUtils.getApproved(fileNameWithPath));
+        }
+    }
+
+    @Override
+    public Set<String> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(fileStoreMatcherUtils::isApproved)
+                    .map(file -> file.getFileName().toString())
+                    .collect(Collectors.toCollection(TreeSet::new));
+        } catch (NoSuchFileException e) {
+            return Collections.emptySet();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.github.karsaig.approvalcrest.matcher.file;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Keeps the written approved and not approved files in memory, reading the files which were not written from another
+ * store, so a test run does not change any files. Used for dry runs, and for running test suites without writable
+ * storage. The other store is only used for reading, writing to it fails.
+ * <p>
+ * Stores created by {@link #dryRun(ApprovalStore, FileStoreMatcherUtils)} share the files written in the JVM, so the
+ * files written by a matcher are seen by the later matchers, like they would be on the file system.
+ */
+public class InMemoryApprovalStore implements ApprovalStore {
+
+    private static final ConcurrentMap<Path, String> DRY_RUN_FILES = new ConcurrentHashMap<>();
+
+    private final ApprovalStore base;
+    private final FileStoreMatcherUtils fileStoreMatcherUtils;
+    private final ConcurrentMap<Path, String> files;
+
+    /**
+     * @param base                  the store of the files which were not written, can be null for an empty store
+     * @param fileStoreMatcherUtils names the files
+     */
+    public InMemoryApprovalStore(ApprovalStore base, FileStoreMatcherUtils fileStoreMatcherUtils) {
+        this(base, fileStoreMatcherUtils, new ConcurrentHashMap<>());
+    }
+
+    private InMemoryApprovalStore(ApprovalStore base, FileStoreMatcherUtils fileStoreMatcherUtils, ConcurrentMap<Path, String> files) {
+        this.base = base == null ? null : new ReadOnlyApprovalStore(base);
+        this.fileStoreMatcherUtils = Objects.requireNonNull(fileStoreMatcherUtils, "FileStoreMatcherUtils must not be null!");
+        this.files = files;
+    }
+
+    /**
+     * @param base                  the store of the files which were not written in the JVM
+     * @param fileStoreMatcherUtils names the files
+     * @return a store sharing the files written in the JVM with the other dry run stores
+     */
+    public static InMemoryApprovalStore dryRun(ApprovalStore base, FileStoreMatcherUtils fileStoreMatcherUtils) {
+        return new InMemoryApprovalStore(base, fileStoreMatcherUtils, DRY_RUN_FILES);
+    }
+
+    @Override
+    public boolean exists(Path fileNameWithPath) throws IOException {
+        return files.containsKey(key(fileStoreMatcherUtils.getApproved(fileNameWithPath)))
+                || base != null && base.exists(fileNameWithPath);
+    }
+
+    @Override
+    public <V> Optional<V> read(Path fileNameWithPath, Function<String, V> processorAfterRead) throws IOException {
+        String content = files.get(key(fileStoreMatcherUtils.getApproved(fileNameWithPath)));
+        if (content != null) {
+            return Optional.of(processorAfterRead.apply(content));
+        }
+        return base == null ? Optional.empty() : base.read(fileNameWithPath, processorAfterRead);
+    }
+
+    @Override
+    public String createNotApproved(Path fileNameWithPath, ContentWriter content, String comment) throws IOException {
+        Path notApprovedFile = fileStoreMatcherUtils.getFullFileName(fileNameWithPath, false);
+        files.put(key(notApprovedFile), render(content));
+        return notApprovedFile.getFileName().toString();
+    }
+
+    @Override
+    public void overwrite(Path fileNameWithPath, ContentWriter content, String comment) throws IOException {
+        files.put(key(fileStoreMatcherUtils.getApproved(fileNameWithPath)), render(content));
+    }
+
+    @Override
+    public Set<String> list(Path directory) throws IOException {
+        Set<String> fileNames = new TreeSet<>();
+        if (base != null) {
+            fileNames.addAll(base.list(directory));
+        }
+        Path parent = key(directory);
+        for (Path file : files.keySet()) {
+            if (parent.equals(file.getParent()) && fileStoreMatcherUtils.isApproved(file)) {
+                fileNames.add(file.getFileName().toString());
+            }
+        }
+        return fileNames;
+    }
+
+    /**
+     * @return the content of the files written to the store, without the comment line, by their absolute paths
+     */
+    public Map<Path, String> getWrittenFiles() {
+        return Collections.unmodifiableMap(new TreeMap<>(files));
+    }
+
+    private static Path key(Path file) {
+        return file.toAbsolutePath();
+    }
+
+    private static String render(ContentWriter content) throws IOException {
+        StringWriter writer = new StringWriter();
+        content.writeTo(writer);
+        return writer.toString();
+    }
+
+    /**
+     * Reads the files of the wrapped store, and refuses to write any.
+     */
+    private static final class ReadOnlyApprovalStore implements ApprovalStore {
+
+        private final ApprovalStore wrapped;
+
+        private ReadOnlyApprovalStore(ApprovalStore wrapped) {
+            this.wrapped = wrapped;
+        }
+
+        @Override
+        public boolean exists(Path fileNameWithPath) throws IOException {
+            return wrapped.exists(fileNameWithPath);
+        }
+
+        @Override
+        public <V> Optional<V> read(Path fileNameWithPath, Function<String, V> processorAfterRead) throws IOException {
+            return wrapped.read(fileNameWithPath, processorAfterRead);
+        }
+
+        @Override
+        public String createNotApproved(Path fileNameWithPath, ContentWriter content, String comment) {
+            throw new UnsupportedOperationException("The base store of the in-memory store is read only!");
+        }
+
+        @Override
+        public void overwrite(Path fileNameWithPath, ContentWriter content, String comment) {
+            throw new UnsupportedOperationException("The base store of the in-memory store is read only!");
+        }
+
+        @Override
+        public Set<String> list(Path directory) throws IOException {
+            return wrapped.list(directory);
+        }
+    }
+}
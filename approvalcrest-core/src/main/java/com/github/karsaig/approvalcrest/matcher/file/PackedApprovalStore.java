@@ -0,0 +1,394 @@
+package com.github.karsaig.approvalcrest.matcher.file;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Stores all approved files of a directory in a single {@value #PACK_FILE_NAME} file, instead of one file per
+ * assertion.
+ * <p>
+ * The pack is a text file of records, each made of a {@code #fileName<TAB>length} header line, followed by the content
+ * of the approved file, which is {@code length} bytes long, and a line break. Records are only appended, the last record
+ * of a file name is its current content. Once the replaced records take up more than half of a large pack, it is
+ * compacted by rewriting it with the current records only, which is moved in its place atomically.
+ * <p>
+ * Each JVM keeps an index of the record offsets of every pack, built from the header lines only, skipping the contents.
+ * The index is checked against the size, modification time and file key of the pack before use; when the pack only
+ * grew, just the appended records are indexed. The contents are read at their offset, so reading an approved file does
+ * not read the rest of the pack.
+ * <p>
+ * Loose approved files, like the renamed not approved files, take precedence over the records of the pack and are read
+ * as they are, so reading never changes any file. A loose file is moved into the pack when it is overwritten, and every
+ * loose file of a directory is moved by {@link #pack(Path)}, which turns a directory of an earlier store into a pack.
+ */
+public class PackedApprovalStore implements ApprovalStore {
+
+    public static final String PACK_FILE_NAME = "approved.pack";
+    private static final String PACK_COMMENT = "approvalcrest packed approved files";
+    private static final byte RECORD_START = '#';
+    private static final byte LINE_END = '\n';
+    private static final char LENGTH_SEPARATOR = '\t';
+    private static final int MAX_HEADER_LENGTH = 4096;
+    private static final long MIN_COMPACTED_SIZE = 64L * 1024;
+    private static final ConcurrentMap<Path, Index> INDEXES = new ConcurrentHashMap<>();
+
+    private final FileStoreMatcherUtils fileStoreMatcherUtils;
+
+    public PackedApprovalStore(FileStoreMatcherUtils fileStoreMatcherUtils) {
+        this.fileStoreMatcherUtils = Objects.requireNonNull(fileStoreMatcherUtils, "FileStoreMatcherUtils must not be null!");
+    }
+
+    @Override
+    public boolean exists(Path fileNameWithPath) throws IOException {
+        Path approvedFile = fileStoreMatcherUtils.getApproved(fileNameWithPath);
+        return Files.exists(approvedFile) || index(packOf(approvedFile)).records.containsKey(approvedFile.getFileName().toString());
+    }
+
+    /**
+     * Reads the loose approved file if there is one, otherwise its record in the pack.
+     */
+    @Override
+    public <V> Optional<V> read(Path fileNameWithPath, Function<String, V> processorAfterRead) throws IOException {
+        Path approvedFile = fileStoreMatcherUtils.getApproved(fileNameWithPath);
+        try {
+            return Optional.of(ApprovedFileCache.get(fileStoreMatcherUtils, approvedFile, processorAfterRead));
+        } catch (NoSuchFileException e) {
+            // not a loose approved file
+        }
+        Path pack = packOf(approvedFile);
+        String fileName = approvedFile.getFileName().toString();
+        Record record = index(pack).records.get(fileName);
+        if (record == null) {
+            return Optional.empty();
+        }
+        Optional<String> content = readRecord(pack, fileName, record);
+        if (!content.isPresent()) {
+            // the pack was compacted since it was indexed
+            INDEXES.remove(pack);
+            record = index(pack).records.get(fileName);
+            content = record == null ? Optional.empty() : readRecord(pack, fileName, record);
+        }
+        return content.map(fileStoreMatcherUtils::stripComment).map(processorAfterRead);
+    }
+
+    /**
+     * Not approved files are kept in their own files, so they can be reviewed and approved by renaming them.
+     */
+    @Override
+    public String createNotApproved(Path fileNameWithPath, ContentWriter content, String comment) throws IOException {
+        return fileStoreMatcherUtils.createNotApproved(fileNameWithPath, content, comment);
+    }
+
+    /**
+     * Appends the content to the pack, and deletes the loose approved file if there is one.
+     */
+    @Override
+    public void overwrite(Path fileNameWithPath, ContentWriter content, String comment) throws IOException {
+        StringWriter writer = new StringWriter();
+        writer.write("/*" + comment + "*/");
+        writer.write("\n");
+        content.writeTo(writer);
+        Path approvedFile = fileStoreMatcherUtils.getApproved(fileNameWithPath);
+        Path pack = packOf(approvedFile);
+        fileStoreMatcherUtils.underWriteLock(pack, () -> {
+            append(pack, record(approvedFile.getFileName().toString(), writer.toString()));
+            Files.deleteIfExists(approvedFile);
+            return null;
+        });
+        ApprovedFileCache.invalidate(approvedFile);
+    }
+
+    /**
+     * Moves the loose approved files of the directory into its pack, creating the pack if there is none yet. The files
+     * are appended to the pack as they are, comment included, before they are deleted.
+     *
+     * @param directory the directory of the approved files
+     * @return the names of the files moved into the pack
+     * @throws IOException if a file can not be read or deleted, or the pack can not be written
+     */
+    public Set<String> pack(Path directory) throws IOException {
+        Path pack = directory.toAbsolutePath().resolve(PACK_FILE_NAME);
+        Set<String> packed = fileStoreMatcherUtils.underWriteLock(pack, () -> {
+            Map<String, Path> looseFiles = new TreeMap<>();
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(fileStoreMatcherUtils::isApproved).forEach(file -> looseFiles.put(file.getFileName().toString(), file));
+            } catch (NoSuchFileException e) {
+                return Collections.<String>emptySet();
+            }
+            if (looseFiles.isEmpty()) {
+                return Collections.<String>emptySet();
+            }
+            StringBuilder records = new StringBuilder();
+            for (Map.Entry<String, Path> looseFile : looseFiles.entrySet()) {
+                records.append(record(looseFile.getKey(), new String(Files.readAllBytes(looseFile.getValue()), UTF_8)));
+            }
+            append(pack, records.toString());
+            for (Path looseFile : looseFiles.values()) {
+                Files.delete(looseFile);
+            }
+            return Collections.unmodifiableSet(looseFiles.keySet());
+        });
+        for (String fileName : packed) {
+            ApprovedFileCache.invalidate(directory.resolve(fileName));
+        }
+        return packed;
+    }
+
+    @Override
+    public Set<String> list(Path directory) throws IOException {
+        Set<String> fileNames = new TreeSet<>(fileNames(directory.resolve(PACK_FILE_NAME)));
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(fileStoreMatcherUtils::isApproved).forEach(file -> fileNames.add(file.getFileName().toString()));
+        } catch (NoSuchFileException e) {
+            return Collections.emptySet();
+        }
+        return fileNames;
+    }
+
+    /**
+     * @param pack the pack file
+     * @return the names of the approved files in the pack
+     * @throws IOException if the pack can not be read
+     */
+    private static Set<String> fileNames(Path pack) throws IOException {
+        return Collections.unmodifiableSet(index(pack).records.keySet());
+    }
+
+    private static Path packOf(Path approvedFile) {
+        return approvedFile.toAbsolutePath().getParent().resolve(PACK_FILE_NAME);
+    }
+
+    private void append(Path pack, String records) throws IOException {
+        if (Files.notExists(pack)) {
+            fileStoreMatcherUtils.replaceAtomically(pack, ContentWriter.of(records), PACK_COMMENT);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(pack, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(records.getBytes(UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Index index = index(pack);
+        if (MIN_COMPACTED_SIZE < index.size && index.liveBytes * 2 < index.size) {
+            compact(pack, index);
+        }
+    }
+
+    private void compact(Path pack, Index index) throws IOException {
+        StringBuilder content = new StringBuilder((int) Math.min(Integer.MAX_VALUE, index.liveBytes));
+        for (Map.Entry<String, Record> entry : new TreeMap<>(index.records).entrySet()) {
+            Optional<String> recordContent = readRecord(pack, entry.getKey(), entry.getValue());
+            if (!recordContent.isPresent()) {
+                throw new IOException("Pack " + pack + " changed while it was compacted");
+            }
+            content.append(record(entry.getKey(), recordContent.get()));
+        }
+        fileStoreMatcherUtils.replaceAtomically(pack, ContentWriter.of(content.toString()), PACK_COMMENT);
+        INDEXES.remove(pack);
+    }
+
+    private static String record(String fileName, String content) {
+        return header(fileName, content.getBytes(UTF_8).length) + content + "\n";
+    }
+
+    private static String header(String fileName, int length) {
+        return (char) RECORD_START + fileName + LENGTH_SEPARATOR + length + "\n";
+    }
+
+    /**
+     * @return the content of the record, or empty if the pack does not have the record at the indexed offset anymore
+     */
+    private static Optional<String> readRecord(Path pack, String fileName, Record record) throws IOException {
+        byte[] header = header(fileName, record.length).getBytes(UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(header.length + record.length);
+        try (FileChannel channel = FileChannel.open(pack, StandardOpenOption.READ)) {
+            readFully(channel, buffer, record.offset);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+        if (buffer.hasRemaining()) {
+            return Optional.empty();
+        }
+        byte[] bytes = buffer.array();
+        for (int i = 0; i < header.length; i++) {
+            if (bytes[i] != header[i]) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(new String(bytes, header.length, record.length, UTF_8));
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long current = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, current);
+            if (read < 0) {
+                return;
+            }
+            current += read;
+        }
+    }
+
+    private static Index index(Path pack) throws IOException {
+        Path key = pack.toAbsolutePath();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            INDEXES.remove(key);
+            return Index.EMPTY;
+        }
+        Index index = INDEXES.get(key);
+        if (index == null || !index.isValidFor(attributes)) {
+            if (index != null && index.canBeExtendedTo(attributes)) {
+                try {
+                    index = scan(key, attributes, index);
+                } catch (MalformedPackException e) {
+                    // the pack was replaced by a file with the same file key
+                    index = scan(key, attributes, Index.EMPTY);
+                }
+            } else {
+                index = scan(key, attributes, Index.EMPTY);
+            }
+            INDEXES.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * Indexes the records of the pack after the records of the given index, reading only their header lines. A
+     * partially written record at the end of the pack is left out.
+     */
+    private static Index scan(Path pack, BasicFileAttributes attributes, Index from) throws IOException {
+        Map<String, Record> records = new HashMap<>(from.records);
+        long liveBytes = from.liveBytes;
+        long position = from.scanned;
+        long size = attributes.size();
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_HEADER_LENGTH);
+        try (FileChannel channel = FileChannel.open(pack, StandardOpenOption.READ)) {
+            while (position < size) {
+                buffer.clear();
+                buffer.limit((int) Math.min(MAX_HEADER_LENGTH, size - position));
+                readFully(channel, buffer, position);
+                int lineLength = indexOf(buffer, LINE_END);
+                if (lineLength < 0) {
+                    break;
+                }
+                long next = position + lineLength + 1;
+                if (buffer.get(0) == RECORD_START) {
+                    String header = new String(buffer.array(), 1, lineLength - 1, UTF_8);
+                    int separator = header.lastIndexOf(LENGTH_SEPARATOR);
+                    int length = parseLength(header.substring(separator + 1));
+                    if (separator < 1 || length < 0) {
+                        throw new MalformedPackException("Malformed record header at " + position + " in pack " + pack);
+                    }
+                    next += length + 1L;
+                    if (size < next) {
+                        break;
+                    }
+                    Record previous = records.put(header.substring(0, separator), new Record(position, length));
+                    liveBytes += next - position;
+                    if (previous != null) {
+                        liveBytes -= previous.size(header.substring(0, separator));
+                    }
+                } else {
+                    liveBytes += next - position;
+                }
+                position = next;
+            }
+        }
+        return new Index(attributes, position, records, liveBytes);
+    }
+
+    private static int parseLength(String length) {
+        try {
+            return Integer.parseInt(length);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte value) {
+        for (int i = 0; i < buffer.position(); i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static final class MalformedPackException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private MalformedPackException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Record {
+        private final long offset;
+        private final int length;
+
+        private Record(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        private long size(String fileName) {
+            return header(fileName, length).getBytes(UTF_8).length + length + 1L;
+        }
+    }
+
+    private static final class Index {
+        private static final Index EMPTY = new Index(null, 0, Collections.emptyMap(), 0);
+
+        private final FileTime lastModifiedTime;
+        private final long size;
+        private final Object fileKey;
+        private final long scanned;
+        private final Map<String, Record> records;
+        private final long liveBytes;
+
+        private Index(BasicFileAttributes attributes, long scanned, Map<String, Record> records, long liveBytes) {
+            this.lastModifiedTime = attributes == null ? null : attributes.lastModifiedTime();
+            this.size = attributes == null ? 0 : attributes.size();
+            this.fileKey = attributes == null ? null : attributes.fileKey();
+            this.scanned = scanned;
+            this.records = records;
+            this.liveBytes = liveBytes;
+        }
+
+        private boolean isValidFor(BasicFileAttributes attributes) {
+            return size == attributes.size()
+                    && Objects.equals(lastModifiedTime, attributes.lastModifiedTime())
+                    && Objects.equals(fileKey, attributes.fileKey());
+        }
+
+        private boolean canBeExtendedTo(BasicFileAttributes attributes) {
+            return fileKey != null && fileKey.equals(attributes.fileKey()) && size < attributes.size();
+        }
+    }
+}
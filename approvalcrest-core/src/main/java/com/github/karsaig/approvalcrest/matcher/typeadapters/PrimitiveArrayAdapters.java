@@ -0,0 +1,160 @@
+package com.github.karsaig.approvalcrest.matcher.typeadapters;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.ToIntFunction;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Type adapters for arrays of ints, longs, doubles and bytes which write the elements straight from the array, instead
+ * of boxing each of them for the element type adapter like Gson does.
+ * <p>
+ * None of them are registered by default, the matchers keep boxing every element until one of the factories is added
+ * to their {@link com.github.karsaig.approvalcrest.matcher.GsonConfiguration}:
+ * <pre>
+ * GsonConfiguration gsonConfiguration = new GsonConfiguration();
+ * gsonConfiguration.addTypeAdapterFactory(PrimitiveArrayAdapters.FACTORY);
+ *
+ * assertThat(actual, sameJsonAsApproved().withGsonConfiguration(gsonConfiguration));
+ * </pre>
+ * {@link #FACTORY} writes the arrays as Json arrays, the same way Gson does. The matchers build a Json tree from the
+ * written values, which holds every value as a {@link com.google.gson.JsonPrimitive} either way, so it only saves boxing
+ * when the arrays are written to text.
+ * <p>
+ * Large arrays can be written in a compact layout instead, by adding {@link #rowsOf(int)} or {@link #singleLine()} to
+ * the {@link com.github.karsaig.approvalcrest.matcher.GsonConfiguration} of the matcher. Those write the values as comma
+ * separated text, so they are compared row by row instead of value by value. The numbers become strings in the approved
+ * files: switching an existing matcher to a compact layout, or back, invalidates its approved files.
+ * <p>
+ * The {@link com.google.gson.Gson} instances of the matchers are cached per factory instance, so the same layout is
+ * always returned as the same factory.
+ */
+public final class PrimitiveArrayAdapters {
+
+    private static final int JSON_ARRAY = 0;
+    private static final int SINGLE_LINE = -1;
+    private static final String VALUE_SEPARATOR = ", ";
+
+    public static final TypeAdapterFactory FACTORY = new Factory(JSON_ARRAY);
+
+    private static final TypeAdapterFactory SINGLE_LINE_FACTORY = new Factory(SINGLE_LINE);
+    private static final ConcurrentMap<Integer, TypeAdapterFactory> ROWS_FACTORIES = new ConcurrentHashMap<>();
+
+    private PrimitiveArrayAdapters() {
+    }
+
+    /**
+     * Returns a factory writing the arrays as Json arrays of rows, each row holding the given number of comma separated
+     * values, apart from the last one which holds the rest.
+     *
+     * @param valuesPerRow the number of values in a row
+     * @return a factory for the arrays of ints, longs, doubles and bytes
+     */
+    public static TypeAdapterFactory rowsOf(int valuesPerRow) {
+        if (valuesPerRow < 1) {
+            throw new IllegalArgumentException("valuesPerRow must be positive, but was " + valuesPerRow);
+        }
+        return ROWS_FACTORIES.computeIfAbsent(valuesPerRow, Factory::new);
+    }
+
+    /**
+     * Returns a factory writing the arrays as a single string of comma separated values.
+     *
+     * @return a factory for the arrays of ints, longs, doubles and bytes
+     */
+    public static TypeAdapterFactory singleLine() {
+        return SINGLE_LINE_FACTORY;
+    }
+
+    private static final class Factory implements TypeAdapterFactory {
+        private final Map<Class<?>, TypeAdapter<?>> adapters = new HashMap<>();
+
+        private Factory(int valuesPerRow) {
+            adapters.put(int[].class, new ArrayAdapter<int[]>(a -> a.length, (out, a, i) -> out.value(a[i]), (text, a, i) -> text.append(a[i]), valuesPerRow));
+            adapters.put(long[].class, new ArrayAdapter<long[]>(a -> a.length, (out, a, i) -> out.value(a[i]), (text, a, i) -> text.append(a[i]), valuesPerRow));
+            adapters.put(double[].class, new ArrayAdapter<double[]>(a -> a.length, (out, a, i) -> out.value(a[i]), (text, a, i) -> text.append(a[i]), valuesPerRow));
+            adapters.put(byte[].class, new ArrayAdapter<byte[]>(a -> a.length, (out, a, i) -> out.value(a[i]), (text, a, i) -> text.append(a[i]), valuesPerRow));
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            return (TypeAdapter<T>) adapters.get(type.getRawType());
+        }
+    }
+
+    @FunctionalInterface
+    private interface ElementWriter<A> {
+        void write(JsonWriter out, A array, int index) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ElementAppender<A> {
+        void append(StringBuilder text, A array, int index);
+    }
+
+    private static final class ArrayAdapter<A> extends TypeAdapter<A> {
+        private final ToIntFunction<A> length;
+        private final ElementWriter<A> elementWriter;
+        private final ElementAppender<A> elementAppender;
+        private final int valuesPerRow;
+
+        private ArrayAdapter(ToIntFunction<A> length, ElementWriter<A> elementWriter, ElementAppender<A> elementAppender, int valuesPerRow) {
+            this.length = length;
+            this.elementWriter = elementWriter;
+            this.elementAppender = elementAppender;
+            this.valuesPerRow = valuesPerRow;
+        }
+
+        @Override
+        public void write(JsonWriter out, A value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            int size = length.applyAsInt(value);
+            if (valuesPerRow == SINGLE_LINE) {
+                out.value(row(value, 0, size));
+                return;
+            }
+            out.beginArray();
+            if (valuesPerRow == JSON_ARRAY) {
+                for (int i = 0; i < size; i++) {
+                    elementWriter.write(out, value, i);
+                }
+            } else {
+                for (int start = 0; start < size; ) {
+                    int end = size - start > valuesPerRow ? start + valuesPerRow : size;
+                    out.value(row(value, start, end));
+                    start = end;
+                }
+            }
+            out.endArray();
+        }
+
+        private String row(A array, int start, int end) {
+            StringBuilder text = new StringBuilder();
+            for (int i = start; i < end; i++) {
+                if (i > start) {
+                    text.append(VALUE_SEPARATOR);
+                }
+                elementAppender.append(text, array, i);
+            }
+            return text.toString();
+        }
+
+        @Override
+        public A read(JsonReader in) {
+            throw new UnsupportedOperationException("Only for serialization!");
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.github.karsaig.approvalcrest.matcher.typeadapters;
 
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
@@ -7,108 +10,200 @@ import com.google.gson.JsonPrimitive;
 import java.lang.reflect.Field;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-
 
+/**
+ * Writes {@link Throwable}s with their class instead of their stack trace. Throwables without a stack trace, like the
+ * ones created with {@code writableStackTrace} disabled, are written without their class.
+ * <p>
+ * The stack trace is never serialised: {@link #STACK_TRACE_EXCLUSION} has to be registered on the same {@link
+ * com.google.gson.Gson} to skip it.
+ */
 public class ThrowableTypeAdapterFactory extends CustomizedTypeAdapterFactory<Throwable> {
 
     private static final String STACK_TRACE_NAME = "stackTrace";
-    private static final Pattern OBJECT_REFERENCE_PATTERN = Pattern.compile("0x(?:\\d)+");
+    private static final Predicate<String> IS_OBJECT_REFERENCE = Pattern.compile("0x(?:\\d)+").asPredicate();
+    private static final ClassValue<Map<String, Field>> EVERY_FIELD = new ClassValue<Map<String, Field>>() {
+        @Override
+        protected Map<String, Field> computeValue(Class<?> type) {
+            Map<String, Field> result = new HashMap<>();
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                for (Field classField : c.getDeclaredFields()) {
+                    result.put(classField.getName(), classField);
+                }
+            }
+            return Collections.unmodifiableMap(result);
+        }
+    };
+
+    /**
+     * Skips the stack trace of every {@link Throwable} while serialising.
+     */
+    public static final ExclusionStrategy STACK_TRACE_EXCLUSION = new ExclusionStrategy() {
+        @Override
+        public boolean shouldSkipField(FieldAttributes f) {
+            return f.getDeclaringClass() == Throwable.class && STACK_TRACE_NAME.equals(f.getName());
+        }
+
+        @Override
+        public boolean shouldSkipClass(Class<?> clazz) {
+            return false;
+        }
+    };
+
+    private final BooleanSupplier stackTraceIgnored;
 
     public ThrowableTypeAdapterFactory() {
+        this(() -> false);
+    }
+
+    /**
+     * @param stackTraceIgnored tells if the stack trace is ignored by the matcher, in which case the class is not
+     *                          written in its place either
+     */
+    public ThrowableTypeAdapterFactory(BooleanSupplier stackTraceIgnored) {
         super(Throwable.class);
+        this.stackTraceIgnored = stackTraceIgnored;
     }
 
     @Override
     protected void beforeWrite(Throwable source, JsonElement toSerialize) {
-        if (toSerialize.isJsonObject()) {
-            JsonObject jsonObject = toSerialize.getAsJsonObject();
-            if (jsonObject.has(STACK_TRACE_NAME)) {
+        if (stackTraceIgnored.getAsBoolean() || !toSerialize.isJsonObject()) {
+            return;
+        }
+        JsonObject jsonObject = toSerialize.getAsJsonObject();
+        String firstRef = firstObjectReference(jsonObject);
+        if (firstRef == null) {
+            if (hasStackTrace(source)) {
                 addClass(source, jsonObject);
-                jsonObject.remove(STACK_TRACE_NAME);
-            } else {
-                Map<String, Object> refToObjectmap = buildSourceObjectMap(source, jsonObject);
-                for (Map.Entry<String, JsonElement> actual : jsonObject.entrySet()) {
-                    JsonElement actualElement = actual.getValue();
-                    if (actualElement.isJsonObject()) {
-                        JsonObject actualObject = actualElement.getAsJsonObject();
-                        if (actualObject.has(STACK_TRACE_NAME)) {
-                            addClass(refToObjectmap.get(actual.getKey()), actualObject);
-                            actualObject.remove(STACK_TRACE_NAME);
-                        }
-                    }
+            }
+        } else {
+            Map<String, Object> refToObjectmap = buildSourceObjectMap(source, jsonObject, firstRef);
+            for (Map.Entry<String, JsonElement> actual : jsonObject.entrySet()) {
+                Object actualSource = refToObjectmap.get(actual.getKey());
+                if (actual.getValue().isJsonObject() && actualSource instanceof Throwable && hasStackTrace(actualSource)) {
+                    addClass(actualSource, actual.getValue().getAsJsonObject());
                 }
             }
         }
     }
 
+    /**
+     * Tells if the stack trace field is set, which is when it would have been serialised.
+     */
+    private boolean hasStackTrace(Object throwable) {
+        try {
+            Field field = EVERY_FIELD.get(Throwable.class).get(STACK_TRACE_NAME);
+            field.setAccessible(true);
+            return field.get(throwable) != null;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private void addClass(Object source, JsonObject jsonObject) {
         jsonObject.add("class", new JsonPrimitive(source.getClass().getCanonicalName()));
     }
 
-    private Map<String, Object> buildSourceObjectMap(Throwable source, JsonObject jsonObject) {
-        Optional<String> firstRef = jsonObject.keySet().stream().filter(OBJECT_REFERENCE_PATTERN.asPredicate()).findFirst();
-        if (!firstRef.isPresent()) {
-            return Collections.emptyMap();
+    /**
+     * Returns the name of the first object of a graph written by {@link com.google.gson.graph.GraphAdapterBuilder}, or
+     * null if the Json object is the throwable itself.
+     */
+    private String firstObjectReference(JsonObject jsonObject) {
+        for (String key : jsonObject.keySet()) {
+            if (IS_OBJECT_REFERENCE.test(key)) {
+                return key;
+            }
         }
-        Map<String, Object> result = new HashMap<>();
-        JsonElement currentElement = jsonObject.get(firstRef.get());
-        result.put(firstRef.get(), source);
+        return null;
+    }
 
-        doBuildSourceObjectMap(result, source, jsonObject, currentElement.getAsJsonObject());
+    /**
+     * Maps the names of the graph objects to the objects they were written from, following the references from the
+     * first object through the fields of the source objects.
+     */
+    private Map<String, Object> buildSourceObjectMap(Throwable source, JsonObject jsonObject, String firstRef) {
+        Map<String, Object> result = new HashMap<>();
+        result.put(firstRef, source);
+        doBuildSourceObjectMap(result, source, jsonObject, jsonObject.get(firstRef).getAsJsonObject());
         return result;
     }
 
     private void doBuildSourceObjectMap(Map<String, Object> result, Object o, JsonObject originalObject, JsonObject currentObject) {
-        List<Map.Entry<String, JsonElement>> jsonPrimitiveRefs = currentObject.entrySet().stream()
-                .filter(e -> e.getValue().isJsonPrimitive()).filter(e -> OBJECT_REFERENCE_PATTERN.asPredicate().test(e.getValue().getAsJsonPrimitive().getAsString()))
-                .collect(Collectors.toList());
-        Map<String, Field> fieldMap = getEveryField(o);
-        if (!jsonPrimitiveRefs.isEmpty()) {
-            for (Map.Entry<String, JsonElement> entry : jsonPrimitiveRefs) {
-                try {
-                    Field field = fieldMap.get(entry.getKey());
-                    field.setAccessible(true);
-                    Object current = field.get(o);
-                    String key = entry.getValue().getAsJsonPrimitive().getAsString();
-                    result.put(key, current);
-                    JsonElement jsonElementForCurrent = originalObject.get(key);
-                    if (jsonElementForCurrent != null && jsonElementForCurrent.isJsonObject()) {
-                        doBuildSourceObjectMap(result, current, originalObject, jsonElementForCurrent.getAsJsonObject());
-                    }
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
+        Map<String, Field> fieldMap = EVERY_FIELD.get(o.getClass());
+        for (Map.Entry<String, JsonElement> entry : currentObject.entrySet()) {
+            JsonElement value = entry.getValue();
+            if (value.isJsonPrimitive()) {
+                addReference(result, getFieldValue(fieldMap, entry.getKey(), o, value), originalObject, value);
+            } else if (value.isJsonArray()) {
+                addReferences(result, getFieldValue(fieldMap, entry.getKey(), o, value), originalObject, value.getAsJsonArray());
             }
         }
-        List<Map.Entry<String, JsonElement>> jsonObjectRefs = currentObject.entrySet().stream()
-                .filter(e -> e.getValue().isJsonObject()).collect(Collectors.toList());
-        if (!jsonObjectRefs.isEmpty()) {
-            for (Map.Entry<String, JsonElement> entry : jsonObjectRefs) {
-                try {
-                    Field field = fieldMap.get(entry.getKey());
-                    field.setAccessible(true);
-                    Object current = field.get(o);
-                    doBuildSourceObjectMap(result, current, originalObject, entry.getValue().getAsJsonObject());
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
+        for (Map.Entry<String, JsonElement> entry : currentObject.entrySet()) {
+            if (entry.getValue().isJsonObject()) {
+                Object current = getFieldValue(fieldMap, entry.getKey(), o, entry.getValue());
+                doBuildSourceObjectMap(result, current, originalObject, entry.getValue().getAsJsonObject());
             }
         }
     }
 
-    private Map<String, Field> getEveryField(Object o) {
-        Map<String, Field> result = new HashMap<>();
-        for (Class<?> c = o.getClass(); c != null; c = c.getSuperclass()) {
-            Field[] fields = c.getDeclaredFields();
-            for (Field classField : fields) {
-                result.put(classField.getName(), classField);
+    /**
+     * Maps the references among the elements of an array, like the suppressed exceptions, to the elements of the
+     * {@link Iterable} it was written from.
+     */
+    private void addReferences(Map<String, Object> result, Object values, JsonObject originalObject, JsonArray array) {
+        if (!(values instanceof Iterable)) {
+            return;
+        }
+        Iterator<?> elements = ((Iterable<?>) values).iterator();
+        for (JsonElement arrayElement : array) {
+            if (!elements.hasNext()) {
+                return;
+            }
+            Object element = elements.next();
+            if (arrayElement.isJsonPrimitive()) {
+                addReference(result, element, originalObject, arrayElement);
             }
         }
-        return result;
+    }
+
+    private void addReference(Map<String, Object> result, Object current, JsonObject originalObject, JsonElement reference) {
+        if (!isObjectReference(reference)) {
+            return;
+        }
+        String key = reference.getAsJsonPrimitive().getAsString();
+        if (result.containsKey(key)) {
+            return;
+        }
+        result.put(key, current);
+        JsonElement jsonElementForCurrent = originalObject.get(key);
+        if (current != null && jsonElementForCurrent != null && jsonElementForCurrent.isJsonObject()) {
+            doBuildSourceObjectMap(result, current, originalObject, jsonElementForCurrent.getAsJsonObject());
+        }
+    }
+
+    private boolean isObjectReference(JsonElement jsonElement) {
+        return jsonElement.getAsJsonPrimitive().isString() && IS_OBJECT_REFERENCE.test(jsonElement.getAsString());
+    }
+
+    private Object getFieldValue(Map<String, Field> fieldMap, String name, Object o, JsonElement value) {
+        if (!value.isJsonObject() && !isReferenceOrArray(value)) {
+            return null;
+        }
+        try {
+            Field field = fieldMap.get(name);
+            field.setAccessible(true);
+            return field.get(o);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private boolean isReferenceOrArray(JsonElement value) {
+        return value.isJsonArray() || value.isJsonPrimitive() && isObjectReference(value);
     }
 }
@@ -0,0 +1,86 @@
+package com.github.karsaig.approvalcrest;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests which verify {@link AcyclicTypes} only proves classes acyclic when their field types can not form a cycle.
+ */
+public class AcyclicTypesTest {
+
+    @Test
+    public void shouldProveValueTypesAcyclic() {
+        assertThat(AcyclicTypes.isAcyclic(Value.class), is(true));
+        assertThat(AcyclicTypes.isAcyclic(ValueHolder.class), is(true));
+        assertThat(AcyclicTypes.isAcyclic(String.class), is(true));
+    }
+
+    @Test
+    public void shouldNotProveTypesWithOpenFieldsAcyclic() {
+        assertThat(AcyclicTypes.isAcyclic(ObjectHolder.class), is(false));
+        assertThat(AcyclicTypes.isAcyclic(NonFinalHolder.class), is(false));
+        assertThat(AcyclicTypes.isAcyclic(RawListHolder.class), is(false));
+    }
+
+    @Test
+    public void shouldNotProveSelfReferencingTypesAcyclic() {
+        assertThat(AcyclicTypes.isAcyclic(Node.class), is(false));
+        assertThat(AcyclicTypes.isAcyclic(NodeHolder.class), is(false));
+    }
+
+    @SuppressWarnings("unused")
+    private static final class Value {
+        private static Value instance;
+        private int id;
+        private Long count;
+        private String name;
+        private TimeUnit unit;
+        private LocalDate date;
+        private ZonedDateTime timestamp;
+        private byte[] data;
+    }
+
+    @SuppressWarnings("unused")
+    private static final class ValueHolder {
+        private Value value;
+        private List<Value> values;
+        private Map<String, List<Value>> valuesByName;
+    }
+
+    @SuppressWarnings("unused")
+    private static final class ObjectHolder {
+        private Object value;
+    }
+
+    @SuppressWarnings("unused")
+    private static final class NonFinalHolder {
+        private NonFinalHolder.Open value;
+
+        private static class Open {
+        }
+    }
+
+    @SuppressWarnings({"unused", "rawtypes"})
+    private static final class RawListHolder {
+        private List values;
+    }
+
+    @SuppressWarnings("unused")
+    private static final class Node {
+        private Node next;
+    }
+
+    @SuppressWarnings("unused")
+    private static final class NodeHolder {
+        private String name;
+        private List<Node> nodes;
+    }
+}
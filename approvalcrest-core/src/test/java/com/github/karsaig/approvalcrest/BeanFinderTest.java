@@ -0,0 +1,63 @@
+package com.github.karsaig.approvalcrest;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests which verify {@link BeanFinder} resolves field paths through the runtime classes of the beans.
+ */
+public class BeanFinderTest {
+
+    @Test
+    public void shouldFindFieldsOfNestedBeansAndSuperClasses() {
+        Child child = new Child(new Child(null, "inner"), "outer");
+
+        assertThat(BeanFinder.findBeanAt("name", child), is("child outer"));
+        assertThat(BeanFinder.findBeanAt("next.id", child), is(42));
+        assertThat(BeanFinder.findBeanAt("next.name", child), is("child inner"));
+        assertThat(BeanFinder.findBeanAt("next.next", child), is((Object) null));
+    }
+
+    @Test
+    public void shouldFailWhenFieldDoesNotExist() {
+        Child child = new Child(null, "outer");
+
+        IllegalArgumentException actual = assertThrows(IllegalArgumentException.class, () -> BeanFinder.findBeanAt("next.missing", new Child(child, "")));
+
+        assertThat(actual.getMessage(), is("next.missing does not exist"));
+    }
+
+    @Test
+    public void shouldFailWhenParentBeanIsNull() {
+        Child child = new Child(null, "outer");
+
+        PathNullPointerException actual = assertThrows(PathNullPointerException.class, () -> BeanFinder.findBeanAt("next.id", child));
+
+        assertThat(actual.getPath(), is("id"));
+    }
+
+    @SuppressWarnings("unused")
+    private static class Parent {
+        private final int id = 42;
+        private final String name;
+
+        private Parent(String name) {
+            this.name = name;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class Child extends Parent {
+        private final Parent next;
+        private final String name;
+
+        private Child(Parent next, String name) {
+            super("parent " + name);
+            this.next = next;
+            this.name = "child " + name;
+        }
+    }
+}
@@ -431,4 +431,23 @@ public class CyclicReferenceDetectorTest {
 
         assertThat(returnedClasses, is(empty()));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldNotOverflowTheStackOnDeepObjectGraphs() {
+        One head = new One();
+        One tail = head;
+        for (int i = 0; i < 20_000; i++) {
+            One next = new One();
+            tail.setGenericObject(next);
+            tail = next;
+        }
+        Two two = new Two();
+        two.setGenericObject(head);
+        tail.setGenericObject(two);
+        MatcherConfiguration matcherConfig = new MatcherConfiguration().addTypeToIgnore(EMPTY_TYPES_TO_IGNORE).addPatternToIgnore(EMPTY_PATTERNS_TO_IGNORE).addPathToIgnore(EMPTY_PATHS_TO_IGNORE);
+
+        Set<Class<?>> returnedClasses = getClassesWithCircularReferences(head, matcherConfig);
+
+        assertThat(returnedClasses, is(Collections.singleton(One.class)));
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.karsaig.approvalcrest;
+
+import static com.github.karsaig.approvalcrest.FieldsIgnorer.MARKER;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Tests which verify the {@link FilteringJsonTreeWriter} moves the {@link FieldsIgnorer#MARKER} of Set and Map fields
+ * out of the tree, while still sorting by it.
+ */
+public class FilteringJsonTreeWriterTest {
+
+    @Test
+    public void shouldRemoveMarkerFromFieldNamesAndSortTheirArrays() throws IOException {
+        FilteringJsonTreeWriter underTest = writer(false);
+
+        underTest.beginObject()
+                .name("name").value("first")
+                .name(MARKER + "tags").beginArray().value("b").value("a").endArray()
+                .endObject();
+
+        assertThat(underTest.get().toString(), is("{\"name\":\"first\",\"tags\":[\"a\",\"b\"]}"));
+    }
+
+    @Test
+    public void shouldSortArraysAsIfMarkerWasPartOfTheFieldNames() throws IOException {
+        FilteringJsonTreeWriter underTest = writer(true);
+
+        underTest.beginObject().name(MARKER + "beans").beginArray()
+                .beginObject().name("a").value(1).name("b").value(2).endObject()
+                .beginObject().name("a").value(1).name(MARKER + "x").beginArray().endArray().endObject()
+                .endArray().endObject();
+
+        assertThat(underTest.get().toString(), is("{\"beans\":[{\"a\":1,\"x\":[]},{\"a\":1,\"b\":2}]}"));
+    }
+
+    @Test
+    public void shouldFilterAndSortRawJsonValuesOfTypeAdapters() {
+        Gson gson = new GsonBuilder().registerTypeAdapter(Raw.class, new RawAdapter()).create();
+
+        String actual = FieldsIgnorer.findPaths(gson, new Holder(new Raw("{\"b\":[2,1],\"a\":{\"ignored\":true,\"kept\":null}}")),
+                Collections.singleton("raw.a.ignored"), Collections.emptyList(), Collections.singleton("raw.b")).toString();
+
+        assertThat(actual, is("{\"raw\":{\"a\":{\"kept\":null},\"b\":[1,2]}}"));
+    }
+
+    @Test
+    public void shouldWriteRawNonFiniteNumbersLikeSerialisedNumbers() throws IOException {
+        FilteringJsonTreeWriter asNumber = writer(false);
+        FilteringJsonTreeWriter asString = new FilteringJsonTreeWriter(Collections.emptySet(), Collections.emptyList(), Collections.emptySet(), Collections.emptyList(), false, true);
+
+        asNumber.jsonValue("NaN");
+        asString.jsonValue(" -Infinity");
+
+        assertThat(asNumber.get().getAsDouble(), is(Double.NaN));
+        assertThat(asString.get().getAsJsonPrimitive().isString(), is(true));
+        assertThat(asString.get().getAsString(), is("-Infinity"));
+    }
+
+    private FilteringJsonTreeWriter writer(boolean sortFile) {
+        return new FilteringJsonTreeWriter(Collections.emptySet(), Collections.emptyList(), Collections.emptySet(), Collections.emptyList(), sortFile, false);
+    }
+
+    private static class Holder {
+        private final Raw raw;
+
+        Holder(Raw raw) {
+            this.raw = raw;
+        }
+    }
+
+    private static class Raw {
+        private final String json;
+
+        Raw(String json) {
+            this.json = json;
+        }
+    }
+
+    private static class RawAdapter extends TypeAdapter<Raw> {
+        @Override
+        public void write(JsonWriter out, Raw value) throws IOException {
+            out.jsonValue(value.json);
+        }
+
+        @Override
+        public Raw read(JsonReader in) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
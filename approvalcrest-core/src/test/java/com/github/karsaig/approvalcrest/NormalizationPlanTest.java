@@ -0,0 +1,81 @@
+package com.github.karsaig.approvalcrest;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hamcrest.Matcher;
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+/**
+ * Tests which verify {@link NormalizationPlan} applies the ignore and sort rules in a single pass.
+ */
+public class NormalizationPlanTest {
+
+    @Test
+    public void shouldRemoveAllPathsThroughObjectsAndArrays() {
+        JsonElement input = JsonParser.parseString("{\"id\":1,\"items\":[{\"name\":\"a\",\"price\":1},null,{\"name\":\"b\",\"price\":2}],"
+                + "\"owner\":{\"id\":2,\"name\":\"c\"},\"missing\":null}");
+
+        JsonElement actual = plan(new HashSet<>(Arrays.asList("id", "items.price", "owner.id", "missing.id", "nope.id")),
+                Collections.emptyList(), Collections.emptySet(), Collections.emptyList(), false).normalize(input);
+
+        assertThat(actual.toString(), is("{\"items\":[{\"name\":\"a\"},null,{\"name\":\"b\"}],\"owner\":{\"name\":\"c\"},\"missing\":null}"));
+    }
+
+    @Test
+    public void shouldFailWhenPathEndsBelowAValueWithoutFields() {
+        NormalizationPlan underTest = plan(Collections.singleton("items.name"), Collections.emptyList(), Collections.emptySet(), Collections.emptyList(), false);
+        JsonElement input = JsonParser.parseString("{\"id\":1,\"items\":[\"a\",\"b\"]}");
+
+        IllegalArgumentException actual = assertThrows(IllegalArgumentException.class, () -> underTest.normalize(input));
+
+        assertThat(actual.getMessage(), is("items.name does not exist"));
+    }
+
+    @Test
+    public void shouldFailWhenPathEndsBelowAValueIgnoredByPattern() {
+        NormalizationPlan underTest = plan(Collections.singleton("items.name"), Collections.singletonList(equalTo("items")), Collections.emptySet(),
+                Collections.emptyList(), false);
+        JsonElement input = JsonParser.parseString("{\"id\":1,\"items\":[\"a\",\"b\"]}");
+
+        IllegalArgumentException actual = assertThrows(IllegalArgumentException.class, () -> underTest.normalize(input));
+
+        assertThat(actual.getMessage(), is("items.name does not exist"));
+    }
+
+    @Test
+    public void shouldSortFieldsAndSelectedArraysAfterFiltering() {
+        JsonElement input = JsonParser.parseString("{\"z\":[{\"b\":2,\"a\":\"x\"},{\"b\":1,\"a\":\"x\",\"c\":0}],\"y\":{\"list\":[3,1,2],\"other\":[3,1,2]},\"c\":1}");
+
+        JsonElement actual = plan(Collections.emptySet(), Collections.singletonList(equalTo("c")), Collections.singleton("y.list"),
+                Collections.singletonList(equalTo("z")), true).normalize(input);
+
+        assertThat(actual.toString(), is("{\"y\":{\"list\":[1,2,3],\"other\":[3,1,2]},\"z\":[{\"a\":\"x\",\"b\":1},{\"a\":\"x\",\"b\":2}]}"));
+        assertThat(input.toString(), is("{\"z\":[{\"b\":2,\"a\":\"x\"},{\"b\":1,\"a\":\"x\",\"c\":0}],\"y\":{\"list\":[3,1,2],\"other\":[3,1,2]},\"c\":1}"));
+    }
+
+    @Test
+    public void shouldKeepOrderWhenSortingIsDisabled() {
+        JsonElement input = JsonParser.parseString("{\"z\":[3,1,2],\"a\":1}");
+
+        JsonElement actual = plan(Collections.emptySet(), Collections.emptyList(), Collections.singleton("z"), Collections.emptyList(), false).normalize(input);
+
+        assertThat(actual.toString(), is("{\"z\":[3,1,2],\"a\":1}"));
+    }
+
+    private NormalizationPlan plan(Set<String> pathsToIgnore, List<Matcher<String>> patternsToIgnore, Set<String> pathsToSort,
+                                   List<Matcher<String>> patternsToSort, boolean sortFile) {
+        return new NormalizationPlan(pathsToIgnore, patternsToIgnore, pathsToSort, patternsToSort, sortFile);
+    }
+}
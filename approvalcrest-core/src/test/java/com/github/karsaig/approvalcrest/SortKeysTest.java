@@ -0,0 +1,116 @@
+package com.github.karsaig.approvalcrest;
+
+import static com.github.karsaig.approvalcrest.FieldsIgnorer.MARKER;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Tests which verify {@link SortKeys} orders elements the same way as their serialised form, and only reads the
+ * serialised form of nested elements up to their first difference.
+ */
+public class SortKeysTest {
+
+    @Test
+    public void shouldOrderElementsAsTheirCompactJson() {
+        JsonArray input = JsonParser.parseString("[{\"a\":[[1,2.5,{\"b\\\"c\":null}],[]],\"d\":{},\"e\":\"\\u2028<x>\",\"f\":true},"
+                + "{\"a\":[[1,2.5,{\"b\\\"c\":null}],[]],\"d\":{},\"e\":\"\\u2028<x>\",\"f\":false},"
+                + "{\"a\":[[1,2.5,{\"b\\\"c\":null}],[]]},{\"a\":[[1,2.5]]},{\"a\":[[1,2.5,{}]]},{\"a\":[[10]]},"
+                + "[],[[]],[1],[1,2],\"a\",\"ab\",\"\",1,12,null,true,{},{\"\":1}]").getAsJsonArray();
+        SortKeys underTest = new SortKeys();
+
+        for (JsonElement left : input) {
+            for (JsonElement right : input) {
+                assertThat(left + " compared to " + right, Integer.signum(underTest.compare(left, right)),
+                        is(Integer.signum(left.toString().compareTo(right.toString()))));
+            }
+        }
+    }
+
+    @Test
+    public void shouldPrefixUnorderedFieldsWithMarker() {
+        JsonObject input = JsonParser.parseString("{\"a\":1,\"b\":[2]}").getAsJsonObject();
+        JsonObject other = JsonParser.parseString("{\"a\":1,\"a~\":[2]}").getAsJsonObject();
+        Map<JsonObject, Set<String>> unorderedFields = new IdentityHashMap<>();
+        unorderedFields.put(input, Collections.singleton("b"));
+
+        assertThat(new SortKeys(unorderedFields).compare(input, other) < 0, is(("{\"a\":1,\"" + MARKER + "b\":[2]}").compareTo(other.toString()) < 0));
+        assertThat(new SortKeys().compare(input, other) < 0, is(false));
+    }
+
+    @Test
+    public void shouldReadKeysOfNestedSetsOnlyUpToTheirFirstDifference() {
+        long comparedCharsPerElement = 0;
+        for (int depth = 2; depth <= 8; depth++) {
+            SortKeys sortKeys = new SortKeys();
+            sortChildren(nestedSets(depth), sortKeys);
+            long elements = (pow(3, depth + 1) - 3) / 2;
+            if (depth == 2) {
+                comparedCharsPerElement = sortKeys.getComparedChars() / elements;
+            }
+
+            assertThat("depth " + depth, sortKeys.getComparedChars() <= (comparedCharsPerElement + 1) * elements, is(true));
+        }
+    }
+
+    @Test
+    public void shouldSortDeeplyNestedArraysAsTheirSerialisedForm() {
+        JsonElement actual = new NormalizationPlan(Collections.emptySet(), Collections.emptyList(), Collections.emptySet(),
+                Collections.singletonList(equalTo("children")), true).normalize(nestedSets(6));
+
+        assertSortedByToString(actual);
+    }
+
+    private static void sortChildren(JsonElement element, SortKeys sortKeys) {
+        JsonArray children = element.getAsJsonObject().getAsJsonArray("children");
+        for (JsonElement child : children) {
+            sortChildren(child, sortKeys);
+        }
+        FieldsIgnorer.sortJsonArray(children, sortKeys);
+    }
+
+    private static long pow(int base, int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= base;
+        }
+        return result;
+    }
+
+    private static JsonElement nestedSets(int depth) {
+        JsonObject result = new JsonObject();
+        result.addProperty("depth", depth);
+        JsonArray children = new JsonArray();
+        if (depth > 0) {
+            for (int i = 3; i > 0; i--) {
+                JsonObject child = nestedSets(depth - 1).getAsJsonObject();
+                child.addProperty("index", i);
+                children.add(child);
+            }
+        }
+        result.add("children", children);
+        return result;
+    }
+
+    private static void assertSortedByToString(JsonElement element) {
+        JsonArray children = element.getAsJsonObject().getAsJsonArray("children");
+        for (int i = 1; i < children.size(); i++) {
+            assertThat(children.get(i - 1).toString().compareTo(children.get(i).toString()) < 0, is(true));
+        }
+        for (JsonElement child : children) {
+            assertSortedByToString(child);
+        }
+    }
+}
@@ -283,6 +283,10 @@ public abstract class AbstractFileMatcherTest extends AbstractTest {
         return new FileMatcherConfig(false, false, false, false, true);
     }
 
+    public static FileMatcherConfig enableStreaming() {
+        return FileMatcherConfig.builder().streaming(true).build();
+    }
+
     protected static <T> T modifyObject(T input, Function<T, T> modifier) {
         return modifier.apply(input);
     }
@@ -0,0 +1,66 @@
+package com.github.karsaig.approvalcrest.matcher;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.github.karsaig.approvalcrest.FileMatcherConfig;
+
+/**
+ * Unit test for the {@link JsonMatcher} using the central approved directory.
+ * Verifies the approved files are kept in the package directory of the test class and are read from the classpath when
+ * they are not on the file system.
+ */
+public class ApprovedDirectoryTest extends AbstractFileMatcherTest {
+
+    private static final FileMatcherConfig APPROVED_DIRECTORY_CONFIG = new FileMatcherConfig(false, false, false, true, false);
+    private static final String PACKAGE_DIRECTORY = "approvalcrest/com/github/karsaig/approvalcrest/matcher/a58733";
+
+    @Test
+    public void shouldCreateNotApprovedFileInPackageDirectory() {
+        inMemoryUnixFs(imfsi -> {
+            Path approvedDirectory = imfsi.getResourcePath().resolve("approvalcrest");
+            DummyInformation testInfo = new DummyInformation(imfsi.getTestPath(), getClass().getName(), "shouldCreateNotApprovedFileInPackageDirectory", approvedDirectory);
+
+            AssertionError actual = assertThrows(AssertionError.class,
+                    () -> MatcherAssert.assertThat("{}", MATCHER_FACTORY.jsonMatcher(testInfo, APPROVED_DIRECTORY_CONFIG)));
+
+            Assertions.assertEquals(getNotApprovedCreationMessage("a58733", "77bfb9-not-approved.json", "77bfb9-approved.json"), actual.getMessage());
+            MatcherAssert.assertThat(Files.exists(imfsi.getResourcePath().resolve(PACKAGE_DIRECTORY).resolve("77bfb9-not-approved.json")), is(true));
+        });
+    }
+
+    @Test
+    public void shouldReadApprovedFileFromClasspath() {
+        inMemoryUnixFs(imfsi -> {
+            Path approvedDirectory = imfsi.getResourcePath().resolve("approvalcrest");
+            DummyInformation testInfo = new DummyInformation(imfsi.getTestPath(), getClass().getName(), "shouldReadApprovedFileFromClasspath", approvedDirectory);
+
+            JsonMatcher<Object> matching = MATCHER_FACTORY.jsonMatcher(testInfo, APPROVED_DIRECTORY_CONFIG);
+            JsonMatcher<Object> notMatching = MATCHER_FACTORY.jsonMatcher(testInfo, APPROVED_DIRECTORY_CONFIG);
+
+            MatcherAssert.assertThat(matching.matches("{\"beanString\": \"dummyString\"}"), is(true));
+            MatcherAssert.assertThat(notMatching.matches("{\"beanString\": \"otherString\"}"), is(false));
+            MatcherAssert.assertThat(Files.exists(imfsi.getResourcePath().resolve(PACKAGE_DIRECTORY)), is(false));
+        });
+    }
+
+    @Test
+    public void shouldPreferApprovedFileOnFileSystem() {
+        inMemoryUnixFs(imfsi -> {
+            Path approvedDirectory = imfsi.getResourcePath().resolve("approvalcrest");
+            writeFile(imfsi.getResourcePath().resolve(PACKAGE_DIRECTORY).resolve("e1a1e5-approved.json"), "{\"beanString\": \"changedString\"}");
+            DummyInformation testInfo = new DummyInformation(imfsi.getTestPath(), getClass().getName(), "shouldReadApprovedFileFromClasspath", approvedDirectory);
+
+            JsonMatcher<Object> underTest = MATCHER_FACTORY.jsonMatcher(testInfo, APPROVED_DIRECTORY_CONFIG);
+
+            MatcherAssert.assertThat(underTest.matches("{\"beanString\": \"changedString\"}"), is(true));
+        });
+    }
+}
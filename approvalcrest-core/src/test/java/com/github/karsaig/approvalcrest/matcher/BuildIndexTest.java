@@ -0,0 +1,60 @@
+package com.github.karsaig.approvalcrest.matcher;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Test;
+
+import com.github.karsaig.approvalcrest.FileMatcherConfig;
+import com.github.karsaig.approvalcrest.matcher.file.ApprovedFileIndex;
+
+/**
+ * Unit test for the {@link JsonMatcher} building the approved file index.
+ * Verifies only the tests which read or write an approved file are recorded in the index.
+ */
+public class BuildIndexTest extends AbstractFileMatcherTest {
+
+    private static final FileMatcherConfig BUILD_INDEX_CONFIG = FileMatcherConfig.builder().buildIndex(true).build();
+
+    @Test
+    public void shouldNotRecordTestWhenNotApprovedFileIsCreated() {
+        inMemoryUnixFs(imfsi -> {
+            Path jsonDir = imfsi.getTestPath().resolve("4ac405");
+
+            assertThrows(AssertionError.class,
+                    () -> MatcherAssert.assertThat("{}", MATCHER_FACTORY.jsonMatcher(dummyInformation(imfsi), BUILD_INDEX_CONFIG)));
+
+            MatcherAssert.assertThat(Files.exists(jsonDir.resolve("11b2ef-not-approved.json")), is(true));
+            MatcherAssert.assertThat(Files.exists(jsonDir.resolve(ApprovedFileIndex.INDEX_FILE_NAME)), is(false));
+        });
+    }
+
+    @Test
+    public void shouldRecordTestWhenApprovedFileIsRead() {
+        inMemoryUnixFs(imfsi -> {
+            Path jsonDir = imfsi.getTestPath().resolve("4ac405");
+            writeFile(jsonDir.resolve("11b2ef-approved.json"), "{}");
+
+            MatcherAssert.assertThat("{}", MATCHER_FACTORY.jsonMatcher(dummyInformation(imfsi), BUILD_INDEX_CONFIG));
+
+            MatcherAssert.assertThat(readFile(jsonDir.resolve(ApprovedFileIndex.INDEX_FILE_NAME)).contains("11b2ef-approved.json\tdummyTestClassName.dummyTestMethodName"), is(true));
+        });
+    }
+
+    @Test
+    public void shouldNotWriteIndexWhenFilesAreKeptInMemory() {
+        inMemoryUnixFs(imfsi -> {
+            Path jsonDir = imfsi.getTestPath().resolve("4ac405");
+            writeFile(jsonDir.resolve("11b2ef-approved.json"), "{}");
+            FileMatcherConfig config = FileMatcherConfig.builder().buildIndex(true).inMemoryStore(true).build();
+
+            MatcherAssert.assertThat("{}", MATCHER_FACTORY.jsonMatcher(dummyInformation(imfsi), config));
+
+            MatcherAssert.assertThat(Files.exists(jsonDir.resolve(ApprovedFileIndex.INDEX_FILE_NAME)), is(false));
+        });
+    }
+}
@@ -0,0 +1,458 @@
+package com.github.karsaig.approvalcrest.matcher;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.junit.jupiter.api.Test;
+
+import com.github.karsaig.approvalcrest.MatcherConfiguration;
+import com.github.karsaig.approvalcrest.matcher.CircularReferenceGuard.CircularReferenceFoundException;
+import com.github.karsaig.approvalcrest.matcher.typeadapters.PathTypeAdapter;
+import com.github.karsaig.approvalcrest.matcher.typeadapters.PrimitiveArrayAdapters;
+import com.github.karsaig.approvalcrest.testdata.cyclic.One;
+import com.github.karsaig.approvalcrest.testdata.cyclic.Two;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+class GsonProviderTest {
+
+    private static final Set<Class<?>> NO_CIRCULAR_REFERENCES = Collections.emptySet();
+
+    @Test
+    void gsonShouldReturnSameInstanceForEqualConfigurations() {
+        Matcher<String> pattern = startsWith("ignored");
+
+        Gson first = GsonProvider.gson(new MatcherConfiguration().addTypeToIgnore(String.class).addPatternToIgnore(pattern), NO_CIRCULAR_REFERENCES);
+        Gson second = GsonProvider.gson(new MatcherConfiguration().addTypeToIgnore(String.class).addPatternToIgnore(pattern), NO_CIRCULAR_REFERENCES);
+
+        assertThat(second, sameInstance(first));
+    }
+
+    @Test
+    void gsonShouldReturnSameInstanceForNullAndEmptyAdditionalConfiguration() {
+        Gson first = GsonProvider.gson(new MatcherConfiguration(), NO_CIRCULAR_REFERENCES, null);
+        Gson second = GsonProvider.gson(new MatcherConfiguration(), NO_CIRCULAR_REFERENCES, new GsonConfiguration());
+
+        assertThat(second, sameInstance(first));
+    }
+
+    @Test
+    void gsonShouldReturnDifferentInstanceWhenIgnoredTypesDiffer() {
+        Gson first = GsonProvider.gson(new MatcherConfiguration().addTypeToIgnore(String.class), NO_CIRCULAR_REFERENCES);
+        Gson second = GsonProvider.gson(new MatcherConfiguration().addTypeToIgnore(Integer.class), NO_CIRCULAR_REFERENCES);
+
+        assertThat(second, not(sameInstance(first)));
+    }
+
+    @Test
+    void gsonShouldReturnSameInstanceWhenIgnoredPatternsAreTheSame() {
+        Matcher<String> pattern = startsWith("ignored");
+
+        Gson first = GsonProvider.gson(new MatcherConfiguration().addPatternToIgnore(pattern), NO_CIRCULAR_REFERENCES);
+        Gson second = GsonProvider.gson(new MatcherConfiguration().addPatternToIgnore(pattern), NO_CIRCULAR_REFERENCES);
+
+        assertThat(second, sameInstance(first));
+    }
+
+    @Test
+    void gsonShouldNotShareInstanceBetweenPatternsDescribedTheSame() {
+        Gson first = GsonProvider.gson(new MatcherConfiguration().addPatternToIgnore(new PrefixPattern("na")), NO_CIRCULAR_REFERENCES);
+        Gson second = GsonProvider.gson(new MatcherConfiguration().addPatternToIgnore(new PrefixPattern("ta")), NO_CIRCULAR_REFERENCES);
+
+        assertThat(first.toJson(new Named("first")), is("{}"));
+        assertThat(second.toJson(new Named("second")), is("{\n  \"name\": \"second\"\n}"));
+    }
+
+    @Test
+    void gsonShouldReturnDifferentInstanceWhenIgnoredPatternsDiffer() {
+        Gson first = GsonProvider.gson(new MatcherConfiguration().addPatternToIgnore(startsWith("ignored")), NO_CIRCULAR_REFERENCES);
+        Gson second = GsonProvider.gson(new MatcherConfiguration().addPatternToIgnore(startsWith("skipped")), NO_CIRCULAR_REFERENCES);
+        Gson third = GsonProvider.gson(new MatcherConfiguration().addPatternToIgnore(endsWith("ignored")), NO_CIRCULAR_REFERENCES);
+
+        assertThat(second, not(sameInstance(first)));
+        assertThat(third, not(sameInstance(first)));
+    }
+
+    @Test
+    void gsonShouldReturnDifferentInstanceWhenCircularReferenceTypesDiffer() {
+        Gson first = GsonProvider.gson(new MatcherConfiguration(), NO_CIRCULAR_REFERENCES);
+        Gson second = GsonProvider.gson(new MatcherConfiguration(), Collections.singleton(One.class));
+
+        assertThat(second, not(sameInstance(first)));
+    }
+
+    @Test
+    void gsonShouldReturnDifferentInstanceWhenAdditionalConfigurationDiffers() {
+        GsonConfiguration additionalConfig = new GsonConfiguration();
+        additionalConfig.addTypeAdapterFactory(PathTypeAdapter.FACTORY);
+
+        Gson first = GsonProvider.gson(new MatcherConfiguration(), NO_CIRCULAR_REFERENCES, null);
+        Gson second = GsonProvider.gson(new MatcherConfiguration(), NO_CIRCULAR_REFERENCES, additionalConfig);
+
+        assertThat(second, not(sameInstance(first)));
+    }
+
+    @Test
+    void gsonShouldNotBeAffectedByLaterChangesOfTheConfiguration() {
+        MatcherConfiguration matcherConfiguration = new MatcherConfiguration();
+        Gson first = GsonProvider.gson(matcherConfiguration, NO_CIRCULAR_REFERENCES);
+
+        matcherConfiguration.addTypeToIgnore(String.class);
+        Gson second = GsonProvider.gson(matcherConfiguration, NO_CIRCULAR_REFERENCES);
+
+        assertThat(second, not(sameInstance(first)));
+        assertThat(GsonProvider.gson(new MatcherConfiguration(), NO_CIRCULAR_REFERENCES), sameInstance(first));
+    }
+
+    @Test
+    void gsonShouldSerialiseNestedSetsAndMapsWithTheEnclosingInstance() {
+        GsonInstanceCounter counter = new GsonInstanceCounter();
+        GsonConfiguration additionalConfig = new GsonConfiguration();
+        additionalConfig.addTypeAdapterFactory(counter);
+        Gson gson = GsonProvider.gson(new MatcherConfiguration(), NO_CIRCULAR_REFERENCES, additionalConfig);
+
+        gson.toJson(Arrays.asList(new Tagged("first", "b", "a"), new Tagged("second", "c")));
+
+        assertThat(counter.gsonInstances, contains(gson));
+    }
+
+    @Test
+    void gsonShouldOrderNestedSetsAndMapsByTheirJsonRepresentation() {
+        Gson gson = GsonProvider.gson(new MatcherConfiguration(), NO_CIRCULAR_REFERENCES);
+
+        String actual = gson.toJson(new Tagged("first", "b", "a"));
+
+        assertThat(actual, is("{\n"
+                + "  \"name\": \"first\",\n"
+                + "  \"!_TO_BE_SORTED_!tags\": [\n"
+                + "    \"a\",\n"
+                + "    \"b\"\n"
+                + "  ],\n"
+                + "  \"!_TO_BE_SORTED_!tagsByName\": [\n"
+                + "    {\n"
+                + "      \"a\": [\n"
+                + "        \"a\"\n"
+                + "      ]\n"
+                + "    },\n"
+                + "    {\n"
+                + "      \"b\": [\n"
+                + "        \"b\"\n"
+                + "      ]\n"
+                + "    }\n"
+                + "  ]\n"
+                + "}"));
+    }
+
+    @Test
+    void gsonShouldKeepOnlyOneOfTheSetElementsHavingTheSameJsonRepresentation() {
+        Gson gson = GsonProvider.gson(new MatcherConfiguration(), NO_CIRCULAR_REFERENCES);
+        Set<Tagged> set = new HashSet<>(Arrays.asList(new Tagged("second"), new Tagged("first"), new Tagged("second")));
+
+        String actual = gson.toJson(set);
+
+        assertThat(actual, is("[\n"
+                + "  {\n"
+                + "    \"name\": \"first\",\n"
+                + "    \"!_TO_BE_SORTED_!tags\": [],\n"
+                + "    \"!_TO_BE_SORTED_!tagsByName\": []\n"
+                + "  },\n"
+                + "  {\n"
+                + "    \"name\": \"second\",\n"
+                + "    \"!_TO_BE_SORTED_!tags\": [],\n"
+                + "    \"!_TO_BE_SORTED_!tagsByName\": []\n"
+                + "  }\n"
+                + "]"));
+    }
+
+    @Test
+    void gsonShouldMatchIgnoredPatternsOncePerFieldName() {
+        CountingPattern pattern = new CountingPattern("tags");
+        Gson gson = GsonProvider.gson(new MatcherConfiguration().addPatternToIgnore(pattern), NO_CIRCULAR_REFERENCES);
+
+        String actual = gson.toJson(new Tagged("first", "tag")) + gson.toJson(new Named("second"));
+
+        assertThat(actual, is("{\n"
+                + "  \"name\": \"first\",\n"
+                + "  \"!_TO_BE_SORTED_!tagsByName\": [\n"
+                + "    {\n"
+                + "      \"tag\": [\n"
+                + "        \"tag\"\n"
+                + "      ]\n"
+                + "    }\n"
+                + "  ]\n"
+                + "}{\n"
+                + "  \"name\": \"second\"\n"
+                + "}"));
+        assertThat(pattern.matchedFieldNames, containsInAnyOrder("name", "tags", "tagsByName"));
+    }
+
+    @Test
+    void gsonShouldWriteTheClassOfThrowablesInsteadOfTheirStackTrace() {
+        Gson gson = GsonProvider.gson(new MatcherConfiguration(), NO_CIRCULAR_REFERENCES);
+
+        String actual = gson.toJson(new IllegalStateException("failed"));
+
+        assertThat(actual, is("{\n"
+                + "  \"detailMessage\": \"failed\",\n"
+                + "  \"suppressedExceptions\": [],\n"
+                + "  \"class\": \"java.lang.IllegalStateException\"\n"
+                + "}"));
+    }
+
+    @Test
+    void gsonShouldNotWriteTheClassOfThrowablesWithoutStackTrace() {
+        Gson gson = GsonProvider.gson(new MatcherConfiguration(), NO_CIRCULAR_REFERENCES);
+
+        String actual = gson.toJson(new StackTracelessException("failed"));
+
+        assertThat(actual, is("{\n"
+                + "  \"detailMessage\": \"failed\"\n"
+                + "}"));
+    }
+
+    @Test
+    void gsonShouldNotWriteTheClassOfThrowablesWhenTheirStackTraceIsIgnored() {
+        Gson gson = GsonProvider.gson(new MatcherConfiguration().addPatternToIgnore(is("stackTrace")), NO_CIRCULAR_REFERENCES);
+
+        String actual = gson.toJson(new IllegalStateException("failed"));
+
+        assertThat(actual, is("{\n"
+                + "  \"detailMessage\": \"failed\",\n"
+                + "  \"suppressedExceptions\": []\n"
+                + "}"));
+    }
+
+    @Test
+    void gsonShouldWriteTheClassOfSuppressedThrowablesInCircularReferenceGraphs() {
+        RuntimeException exception = new RuntimeException("failed");
+        exception.addSuppressed(new IllegalArgumentException("suppressed"));
+        Gson gson = GsonProvider.gson(new MatcherConfiguration(), new HashSet<>(Arrays.asList(RuntimeException.class, IllegalArgumentException.class)));
+
+        String actual = gson.toJson(exception);
+
+        assertThat(actual, is("{\n"
+                + "  \"0x1\": {\n"
+                + "    \"detailMessage\": \"failed\",\n"
+                + "    \"suppressedExceptions\": [\n"
+                + "      \"0x2\"\n"
+                + "    ],\n"
+                + "    \"class\": \"java.lang.RuntimeException\"\n"
+                + "  },\n"
+                + "  \"0x2\": {\n"
+                + "    \"detailMessage\": \"suppressed\",\n"
+                + "    \"suppressedExceptions\": [],\n"
+                + "    \"class\": \"java.lang.IllegalArgumentException\"\n"
+                + "  }\n"
+                + "}"));
+    }
+
+    @Test
+    void gsonShouldWritePrimitiveArraysInRowsWhenConfigured() {
+        GsonConfiguration additionalConfig = new GsonConfiguration();
+        additionalConfig.addTypeAdapterFactory(PrimitiveArrayAdapters.rowsOf(2));
+        Gson gson = GsonProvider.gson(new MatcherConfiguration(), NO_CIRCULAR_REFERENCES, additionalConfig);
+
+        String actual = gson.toJson(new Samples());
+
+        assertThat(actual, is("{\n"
+                + "  \"ints\": [\n"
+                + "    \"1, 2\",\n"
+                + "    \"3\"\n"
+                + "  ],\n"
+                + "  \"longs\": [],\n"
+                + "  \"doubles\": [\n"
+                + "    \"0.5, NaN\"\n"
+                + "  ],\n"
+                + "  \"bytes\": [\n"
+                + "    \"-1\"\n"
+                + "  ]\n"
+                + "}"));
+    }
+
+    @Test
+    void gsonShouldWritePrimitiveArraysOnASingleLineWhenConfigured() {
+        GsonConfiguration additionalConfig = new GsonConfiguration();
+        additionalConfig.addTypeAdapterFactory(PrimitiveArrayAdapters.singleLine());
+        Gson gson = GsonProvider.gson(new MatcherConfiguration(), NO_CIRCULAR_REFERENCES, additionalConfig);
+
+        String actual = gson.toJson(new Samples());
+
+        assertThat(actual, is("{\n"
+                + "  \"ints\": \"1, 2, 3\",\n"
+                + "  \"longs\": \"\",\n"
+                + "  \"doubles\": \"0.5, NaN\",\n"
+                + "  \"bytes\": \"-1\"\n"
+                + "}"));
+    }
+
+    @Test
+    void gsonShouldReturnSameInstanceForTheSamePrimitiveArrayLayout() {
+        GsonConfiguration firstConfig = new GsonConfiguration();
+        firstConfig.addTypeAdapterFactory(PrimitiveArrayAdapters.rowsOf(4));
+        GsonConfiguration secondConfig = new GsonConfiguration();
+        secondConfig.addTypeAdapterFactory(PrimitiveArrayAdapters.rowsOf(4));
+
+        Gson first = GsonProvider.gson(new MatcherConfiguration(), NO_CIRCULAR_REFERENCES, firstConfig);
+        Gson second = GsonProvider.gson(new MatcherConfiguration(), NO_CIRCULAR_REFERENCES, secondConfig);
+
+        assertThat(second, sameInstance(first));
+        assertThat(PrimitiveArrayAdapters.rowsOf(5), not(sameInstance(PrimitiveArrayAdapters.rowsOf(4))));
+    }
+
+    @Test
+    void guardedGsonShouldWriteObjectsWithoutCircularReferencesAsGsonDoes() {
+        Named shared = new Named("shared");
+        List<Object> actual = Arrays.asList(new Tagged("first", "b", "a"), shared, shared, new Samples());
+
+        String expected = GsonProvider.gson(new MatcherConfiguration(), NO_CIRCULAR_REFERENCES).toJson(actual);
+
+        assertThat(GsonProvider.guardedGson(new MatcherConfiguration(), null).toJson(actual), is(expected));
+    }
+
+    @Test
+    void guardedGsonShouldGiveUpOnCircularReferences() {
+        One one = new One();
+        Two two = new Two();
+        one.setGenericObject(two);
+        two.setGenericObject(one);
+        Gson gson = GsonProvider.guardedGson(new MatcherConfiguration(), null);
+
+        assertThrows(CircularReferenceFoundException.class, () -> gson.toJson(Collections.singletonList(one)));
+    }
+
+    @Test
+    void guardedGsonShouldGiveUpOnReferencesItSkips() {
+        Gson gson = GsonProvider.guardedGson(new MatcherConfiguration(), null);
+        Parent parent = new Parent();
+        parent.child = new Child();
+        parent.child.parent = parent;
+
+        assertThrows(CircularReferenceFoundException.class, () -> gson.toJson(parent));
+        assertThrows(CircularReferenceFoundException.class, () -> gson.toJson(new RuntimeException("cause is itself")));
+    }
+
+    @Test
+    void guardedGsonShouldNotBeProvidedWhenTypeAdaptersAreConfigured() {
+        GsonConfiguration additionalConfig = new GsonConfiguration();
+        additionalConfig.addTypeAdapterFactory(PathTypeAdapter.FACTORY);
+
+        assertThat(GsonProvider.guardedGson(new MatcherConfiguration(), additionalConfig), is(nullValue()));
+    }
+
+    private static class Tagged {
+        private final String name;
+        private final Set<String> tags = new HashSet<>();
+        private final Map<String, Set<String>> tagsByName = new HashMap<>();
+
+        Tagged(String name, String... tags) {
+            this.name = name;
+            for (String tag : tags) {
+                this.tags.add(tag);
+                this.tagsByName.put(tag, Collections.singleton(tag));
+            }
+        }
+    }
+
+    private static class Named {
+        private final String name;
+
+        Named(String name) {
+            this.name = name;
+        }
+    }
+
+    private static class Parent {
+        private Child child;
+    }
+
+    private static class Child {
+        private transient Parent parent;
+    }
+
+    private static class Samples {
+        private final int[] ints = {1, 2, 3};
+        private final long[] longs = {};
+        private final double[] doubles = {0.5, Double.NaN};
+        private final byte[] bytes = {-1};
+    }
+
+    private static class StackTracelessException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        StackTracelessException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private static class CountingPattern extends BaseMatcher<String> {
+        private final String ignoredFieldName;
+        private final List<Object> matchedFieldNames = new ArrayList<>();
+
+        CountingPattern(String ignoredFieldName) {
+            this.ignoredFieldName = ignoredFieldName;
+        }
+
+        @Override
+        public boolean matches(Object item) {
+            matchedFieldNames.add(item);
+            return ignoredFieldName.equals(item);
+        }
+
+        @Override
+        public void describeTo(Description description) {
+            description.appendValue(ignoredFieldName);
+        }
+    }
+
+    private static class PrefixPattern extends BaseMatcher<String> {
+        private final String prefix;
+
+        PrefixPattern(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean matches(Object item) {
+            return item instanceof String && ((String) item).startsWith(prefix);
+        }
+
+        @Override
+        public void describeTo(Description description) {
+            description.appendText("a field name with the prefix");
+        }
+    }
+
+    private static class GsonInstanceCounter implements TypeAdapterFactory {
+        private final Set<Gson> gsonInstances = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            gsonInstances.add(gson);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.karsaig.approvalcrest.matcher;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Test;
+
+import com.github.karsaig.approvalcrest.FileMatcherConfig;
+
+/**
+ * Unit test for the {@link JsonMatcher} keeping the written files in memory.
+ * Verifies the failure message of a missing approved file does not point at a not approved file which was never written.
+ */
+public class InMemoryStoreTest extends AbstractFileMatcherTest {
+
+    private static final FileMatcherConfig IN_MEMORY_CONFIG = FileMatcherConfig.builder().inMemoryStore(true).build();
+
+    @Test
+    public void shouldTellNotApprovedContentWasOnlyKeptInMemory() {
+        inMemoryUnixFs(imfsi -> {
+            Path jsonDir = imfsi.getTestPath().resolve("4ac405");
+
+            AssertionError actual = assertThrows(AssertionError.class,
+                    () -> MatcherAssert.assertThat("{}", MATCHER_FACTORY.jsonMatcher(dummyInformation(imfsi), IN_MEMORY_CONFIG)));
+
+            MatcherAssert.assertThat(actual.getMessage(), is("Approved file '4ac405" + File.separator + "11b2ef-approved.json' not found;\n"
+                    + " the actual content was only kept in memory (dry run), no not approved file was written."));
+            MatcherAssert.assertThat(Files.exists(jsonDir.resolve("11b2ef-not-approved.json")), is(false));
+        });
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.karsaig.approvalcrest.matcher;
+
+import com.github.karsaig.approvalcrest.FileMatcherConfig;
+import com.github.karsaig.approvalcrest.testdata.BeanWithPrimitives;
+import com.github.karsaig.approvalcrest.util.InMemoryFiles;
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit test for the {@link JsonMatcher} with streaming serialization enabled.
+ * Verifies the files and results are the same as with the default serialization.
+ */
+public class JsonMatcherStreamingTest extends AbstractFileMatcherTest {
+
+    private static final String UNSORTED_JSON = "{\"b\":[3,1,2],\"a\":{\"y\":1,\"x\":2}}";
+
+    @Test
+    public void shouldCreateTheSameNotApprovedFileAsTheDefaultSerialization() {
+        BeanWithPrimitives actual = getBeanWithPrimitives();
+        inMemoryUnixFs(imfsi -> {
+            DummyInformation dummyTestInfo = dummyInformation(imfsi, "JsonMatcherStreamingTest", "shouldCreateTheSameNotApprovedFileAsTheDefaultSerialization");
+            JsonMatcher<BeanWithPrimitives> underTest = MATCHER_FACTORY.jsonMatcher(dummyTestInfo, enableStreaming());
+
+            AssertionError actualError = assertThrows(AssertionError.class,
+                    () -> MatcherAssert.assertThat(actual, underTest));
+
+            Assertions.assertEquals(getNotApprovedCreationMessage("2e8409", "a71394-not-approved.json", "a71394-approved.json"), actualError.getMessage());
+
+            List<InMemoryFiles> actualFiles = getFiles(imfsi);
+            InMemoryFiles expected = new InMemoryFiles("2e8409/a71394-not-approved.json", "/*JsonMatcherStreamingTest.shouldCreateTheSameNotApprovedFileAsTheDefaultSerialization*/\n" +
+                    getBeanWithPrimitivesAsJsonString());
+
+            assertIterableEquals(singletonList(expected), actualFiles);
+        });
+    }
+
+    @Test
+    public void shouldIgnoreAndSortWhileCreatingNotApprovedFile() {
+        inMemoryUnixFs(imfsi -> {
+            DummyInformation dummyTestInfo = dummyInformation(imfsi, "JsonMatcherStreamingTest", "shouldIgnoreAndSortWhileCreatingNotApprovedFile");
+            JsonMatcher<String> underTest = MATCHER_FACTORY.<String>jsonMatcher(dummyTestInfo, enableStreaming())
+                    .ignoring("a.y")
+                    .sortField("b");
+
+            assertThrows(AssertionError.class, () -> MatcherAssert.assertThat(UNSORTED_JSON, underTest));
+
+            List<InMemoryFiles> actualFiles = getFiles(imfsi);
+            InMemoryFiles expected = new InMemoryFiles("2e8409/277b1d-not-approved.json", "/*JsonMatcherStreamingTest.shouldIgnoreAndSortWhileCreatingNotApprovedFile*/\n" +
+                    "{\n" +
+                    "  \"a\": {\n" +
+                    "    \"x\": 2\n" +
+                    "  },\n" +
+                    "  \"b\": [\n" +
+                    "    1,\n" +
+                    "    2,\n" +
+                    "    3\n" +
+                    "  ]\n" +
+                    "}");
+
+            assertIterableEquals(singletonList(expected), actualFiles);
+        });
+    }
+
+    @Test
+    public void shouldMatchApprovedFileWrittenWithDefaultSerialization() {
+        BeanWithPrimitives actual = getBeanWithPrimitives();
+        inMemoryUnixFs(imfsi -> {
+            DummyInformation dummyTestInfo = dummyInformation(imfsi, "JsonMatcherStreamingTest", "shouldMatchApprovedFileWrittenWithDefaultSerialization");
+            JsonMatcher<BeanWithPrimitives> underTest = MATCHER_FACTORY.jsonMatcher(dummyTestInfo, enableStreaming());
+
+            writeFile(imfsi.getTestPath().resolve("2e8409").resolve("8ed117-approved.json"), getBeanWithPrimitivesAsJsonString());
+
+            MatcherAssert.assertThat(actual, underTest);
+        });
+    }
+
+    @Test
+    public void shouldFailWhenApprovedFileDiffers() {
+        inMemoryUnixFs(imfsi -> {
+            DummyInformation dummyTestInfo = dummyInformation(imfsi, "JsonMatcherStreamingTest", "shouldFailWhenApprovedFileDiffers");
+            JsonMatcher<String> underTest = MATCHER_FACTORY.jsonMatcher(dummyTestInfo, enableStreaming());
+
+            writeFile(imfsi.getTestPath().resolve("2e8409").resolve("41f22d-approved.json"), "{\"a\":{\"y\":1,\"x\":3},\"b\":[3,1,2]}");
+
+            assertThrows(AssertionError.class, () -> MatcherAssert.assertThat(UNSORTED_JSON, underTest));
+        });
+    }
+
+    @Test
+    public void shouldOverwriteApprovedFileWhenDiffersFromActual() {
+        inMemoryUnixFs(imfsi -> {
+            DummyInformation dummyTestInfo = dummyInformation(imfsi, "JsonMatcherStreamingTest", "shouldOverwriteApprovedFileWhenDiffersFromActual");
+            JsonMatcher<String> underTest = MATCHER_FACTORY.<String>jsonMatcher(dummyTestInfo, FileMatcherConfig.builder().overwriteInPlace(true).streaming(true).build())
+                    .sortField("b");
+
+            writeFile(imfsi.getTestPath().resolve("2e8409").resolve("f5930d-approved.json"), "{ dummyProperty: dummyContent }");
+
+            MatcherAssert.assertThat(UNSORTED_JSON, underTest);
+
+            List<InMemoryFiles> actualFiles = getFiles(imfsi);
+            InMemoryFiles expected = new InMemoryFiles("2e8409/f5930d-approved.json", "/*JsonMatcherStreamingTest.shouldOverwriteApprovedFileWhenDiffersFromActual*/\n" +
+                    "{\n" +
+                    "  \"a\": {\n" +
+                    "    \"x\": 2,\n" +
+                    "    \"y\": 1\n" +
+                    "  },\n" +
+                    "  \"b\": [\n" +
+                    "    1,\n" +
+                    "    2,\n" +
+                    "    3\n" +
+                    "  ]\n" +
+                    "}");
+
+            assertIterableEquals(singletonList(expected), actualFiles);
+        });
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.karsaig.approvalcrest.matcher;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests which verify {@link JsonTreeComparator} reports the same differences as JSONAssert in strict mode.
+ */
+public class JsonTreeComparatorTest {
+
+    public static Object[][] comparisonTestCases() {
+        return new Object[][]{
+                {"{\"a\":1,\"b\":[1,2.0]}", "{\"b\":[1.0,2],\"a\":1.0}", null},
+                {"{}", "{\"value\":13}", "\nUnexpected: value\n"},
+                {"{\"value\":13}", "{}", "\nExpected: value\n     but none found\n"},
+                {"{\"value\":13}", "{\"value\":15}", "value\nExpected: 13\n     got: 15\n"},
+                {"{\"string\":\"string\",\"integer\":1,\"map\":[]}", "{\"string\":\"string3\",\"integer\":13,\"map\":[1]}",
+                        "integer\nExpected: 1\n     got: 13\n ; map[]: Expected 0 values but got 1 ; string\nExpected: string\n     got: string3\n"},
+                {"{\"list\":[{\"a\":{}},{\"a\":null}]}", "{\"list\":[{\"a\":[]},{\"a\":\"null\"}]}",
+                        "list[0].a\nExpected: a JSON object\n     got: a JSON array\n ; list[1].a\nExpected: null\n     got: null\n"},
+                {"{\"a\":true}", "{\"a\":\"true\"}", "a\nExpected: true\n     got: true\n"},
+                {"\"1970-01-01T00:00:13.000Z\"", "\"1970-01-01T00:00:14.000Z\"", ""},
+                {"\"same\"", "\"same\"", null},
+                {"[1,2]", "[1,2,3]", "[]: Expected 2 values but got 3"},
+                {"[1]", "{}", "\nExpected: a JSON array\n     got: a JSON object\n"},
+                {"true", "true", "Unparsable JSON string: true"},
+        };
+    }
+
+    @ParameterizedTest
+    @MethodSource("comparisonTestCases")
+    public void compareShouldDescribeDifferencesLikeJsonAssert(String expected, String actual, String differences) {
+        assertThat(JsonTreeComparator.compare(JsonParser.parseString(expected), JsonParser.parseString(actual)), equalTo(differences));
+    }
+
+    @Test
+    public void compareShouldRejectNonFiniteNumberFields() {
+        JsonObject actual = new JsonObject();
+        actual.addProperty("a", Double.NaN);
+
+        assertThat(JsonTreeComparator.compare(JsonParser.parseString("{\"a\":1}"), actual), equalTo("Forbidden numeric value: NaN"));
+    }
+}
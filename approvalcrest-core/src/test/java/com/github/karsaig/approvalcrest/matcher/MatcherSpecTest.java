@@ -0,0 +1,48 @@
+package com.github.karsaig.approvalcrest.matcher;
+
+import com.github.karsaig.approvalcrest.MatcherConfiguration;
+import org.hamcrest.MatcherAssert;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Unit test for the {@link JsonMatcher} created from a {@link MatcherSpec}.
+ * Verifies the spec configures the matcher and stays unchanged when the matcher or the configuration is changed.
+ */
+public class MatcherSpecTest extends AbstractFileMatcherTest {
+
+    private static final String UNSORTED_JSON = "{\"b\":[3,1,2],\"a\":{\"y\":1,\"x\":2}}";
+    private static final String APPROVED_JSON = "{\"a\":{\"x\":2},\"b\":[1,2,3]}";
+
+    @Test
+    public void shouldIgnoreAndSortAsConfiguredInTheSpec() {
+        MatcherSpec spec = MatcherSpec.of(new MatcherConfiguration().addPathToIgnore("a.y").addPathToSort("b"));
+
+        runJsonMatcherTestWithDummyTestInfo(APPROVED_JSON, testInfo ->
+                MatcherAssert.assertThat(UNSORTED_JSON, MATCHER_FACTORY.jsonMatcher(testInfo, getDefaultFileMatcherConfig(), spec)));
+    }
+
+    @Test
+    public void customisingTheMatcherShouldNotChangeTheSpec() {
+        MatcherSpec spec = MatcherSpec.of(new MatcherConfiguration().addPathToSort("b"));
+
+        runJsonMatcherTestWithDummyTestInfo(APPROVED_JSON, testInfo -> {
+            JsonMatcher<String> customised = MATCHER_FACTORY.<String>jsonMatcher(testInfo, getDefaultFileMatcherConfig(), spec).ignoring("a.y");
+            JsonMatcher<String> notCustomised = MATCHER_FACTORY.jsonMatcher(testInfo, getDefaultFileMatcherConfig(), spec);
+
+            MatcherAssert.assertThat(customised.matches(UNSORTED_JSON), is(true));
+            MatcherAssert.assertThat(notCustomised.matches(UNSORTED_JSON), is(false));
+        });
+    }
+
+    @Test
+    public void changingTheConfigurationShouldNotChangeTheSpec() {
+        MatcherConfiguration configuration = new MatcherConfiguration().addPathToSort("b");
+        MatcherSpec spec = MatcherSpec.of(configuration);
+        configuration.addPathToIgnore("a.y");
+
+        runJsonMatcherTestWithDummyTestInfo(APPROVED_JSON, testInfo ->
+                MatcherAssert.assertThat(MATCHER_FACTORY.jsonMatcher(testInfo, getDefaultFileMatcherConfig(), spec).matches(UNSORTED_JSON), is(false)));
+    }
+}
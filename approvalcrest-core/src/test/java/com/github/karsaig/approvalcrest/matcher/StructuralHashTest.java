@@ -0,0 +1,45 @@
+package com.github.karsaig.approvalcrest.matcher;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Tests which verify {@link StructuralHash} only gives equal hashes to trees {@link JsonTreeComparator} accepts.
+ */
+public class StructuralHashTest {
+
+    @Test
+    public void hashShouldNotDependOnFieldOrder() {
+        StructuralHash expected = StructuralHash.of(JsonParser.parseString("{\"a\":1,\"b\":[\"x\",null,true],\"c\":{\"d\":\"e\"}}"));
+
+        StructuralHash actual = StructuralHash.of(JsonParser.parseString("{\"c\":{\"d\":\"e\"},\"b\":[\"x\",null,true],\"a\":1}"));
+
+        assertThat(actual, equalTo(expected));
+    }
+
+    @Test
+    public void hashShouldDependOnValuesAndArrayOrder() {
+        StructuralHash expected = StructuralHash.of(JsonParser.parseString("{\"a\":[1,2],\"b\":\"ab\"}"));
+
+        assertThat(StructuralHash.of(JsonParser.parseString("{\"a\":[2,1],\"b\":\"ab\"}")), not(equalTo(expected)));
+        assertThat(StructuralHash.of(JsonParser.parseString("{\"a\":[1,2],\"b\":\"ba\"}")), not(equalTo(expected)));
+        assertThat(StructuralHash.of(JsonParser.parseString("{\"a\":[1,2],\"c\":\"ab\"}")), not(equalTo(expected)));
+        assertThat(StructuralHash.of(JsonParser.parseString("{\"a\":[1,2.0],\"b\":\"ab\"}")), not(equalTo(expected)));
+    }
+
+    @Test
+    public void hashShouldBeMissingForTreesJsonAssertRejects() {
+        JsonObject nonFinite = new JsonObject();
+        nonFinite.addProperty("a", Double.NaN);
+
+        assertThat(StructuralHash.of(nonFinite), nullValue());
+        assertThat(StructuralHash.of(JsonParser.parseString("true")), nullValue());
+        assertThat(StructuralHash.of(JsonParser.parseString("null")), nullValue());
+    }
+}
@@ -13,6 +13,11 @@ public class TestMatcherFactory extends MatcherFactory {
         return super.jsonMatcher(testMetaInformation, fileMatcherConfig);
     }
 
+    @Override
+    public <T> JsonMatcher<T> jsonMatcher(TestMetaInformation testMetaInformation, FileMatcherConfig fileMatcherConfig, MatcherSpec spec) {
+        return super.jsonMatcher(testMetaInformation, fileMatcherConfig, spec);
+    }
+
     @Override
     public <T> ContentMatcher<T> contentMatcher(TestMetaInformation testMetaInformation, FileMatcherConfig fileMatcherConfig) {
         return super.contentMatcher(testMetaInformation, fileMatcherConfig);
@@ -0,0 +1,124 @@
+package com.github.karsaig.approvalcrest.matcher.file;
+
+import static com.github.karsaig.approvalcrest.util.InMemoryFsUtil.inMemoryUnixFsWithFileAttributeSupport;
+import static com.github.karsaig.approvalcrest.util.InMemoryFsUtil.writeFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.karsaig.approvalcrest.FileMatcherConfig;
+
+/**
+ * Tests which verify {@link ApprovedFileCache} processes an approved file again only when it has changed.
+ */
+public class ApprovedFileCacheTest {
+
+    private static final FileStoreMatcherUtils FILE_STORE_MATCHER_UTILS = new FileStoreMatcherUtils("json", new FileMatcherConfig());
+
+    @Test
+    public void shouldProcessUnchangedFileOnlyOnce() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path file = imfsi.getTestPath().resolve("cached-approved.json");
+            writeFile(file, "/*comment*/\ncontent");
+            CountingProcessor processor = new CountingProcessor();
+
+            StringBuilder first = get(file, processor);
+            StringBuilder second = get(file, processor);
+
+            assertThat(second, sameInstance(first));
+            assertThat(first.toString(), is("content"));
+            assertThat(processor.count, is(1));
+        });
+    }
+
+    @Test
+    public void shouldProcessFileAgainWhenItChanges() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path file = imfsi.getTestPath().resolve("changed-approved.json");
+            writeFile(file, "content");
+            CountingProcessor processor = new CountingProcessor();
+            get(file, processor);
+
+            writeFile(file, "changed content");
+
+            assertThat(get(file, processor).toString(), is("changed content"));
+            assertThat(processor.count, is(2));
+        });
+    }
+
+    @Test
+    public void shouldProcessFileAgainAfterInvalidation() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path file = imfsi.getTestPath().resolve("rewritten-approved.json");
+            writeFile(file, "content");
+            CountingProcessor processor = new CountingProcessor();
+            get(file, processor);
+            FileTime lastModifiedTime = getLastModifiedTime(file);
+
+            writeFile(file, "CONTENT");
+            setLastModifiedTime(file, lastModifiedTime);
+            ApprovedFileCache.invalidate(file);
+
+            assertThat(get(file, processor).toString(), is("CONTENT"));
+            assertThat(processor.count, is(2));
+        });
+    }
+
+    @Test
+    public void shouldProcessFileAgainWithAnotherProcessor() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path file = imfsi.getTestPath().resolve("shared-approved.json");
+            writeFile(file, "content");
+            CountingProcessor processor = new CountingProcessor();
+            CountingProcessor otherProcessor = new CountingProcessor();
+
+            get(file, processor);
+            get(file, otherProcessor);
+
+            assertThat(processor.count, is(1));
+            assertThat(otherProcessor.count, is(1));
+        });
+    }
+
+    private static StringBuilder get(Path file, Function<String, StringBuilder> processor) {
+        try {
+            return ApprovedFileCache.get(FILE_STORE_MATCHER_UTILS, file, processor);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static FileTime getLastModifiedTime(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void setLastModifiedTime(Path file, FileTime lastModifiedTime) {
+        try {
+            Files.setLastModifiedTime(file, lastModifiedTime);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class CountingProcessor implements Function<String, StringBuilder> {
+        private int count;
+
+        @Override
+        public StringBuilder apply(String content) {
+            count++;
+            return new StringBuilder(content);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.github.karsaig.approvalcrest.matcher.file;
+
+import static com.github.karsaig.approvalcrest.util.InMemoryFsUtil.inMemoryUnixFsWithFileAttributeSupport;
+import static com.github.karsaig.approvalcrest.util.InMemoryFsUtil.writeFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.karsaig.approvalcrest.FileMatcherConfig;
+
+/**
+ * Tests which verify {@link ApprovedFileIndex} maps the approved files of a directory to their tests.
+ */
+public class ApprovedFileIndexTest {
+
+    private static final FileStoreMatcherUtils FILE_STORE_MATCHER_UTILS = new FileStoreMatcherUtils("json", new FileMatcherConfig());
+    private static final ApprovalStore FILE_SYSTEM_STORE = new FileSystemApprovalStore(FILE_STORE_MATCHER_UTILS);
+    private static final ApprovalStore PACKED_STORE = new PackedApprovalStore(FILE_STORE_MATCHER_UTILS);
+
+    @Test
+    public void shouldFindRecordedFilesByTestAndTestByFile() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            record(directory.resolve("11b2ef-approved.json"), "DummyTestClass.dummyTestMethod");
+            record(directory.resolve("11b2ef-1-approved.json"), "DummyTestClass.dummyTestMethod");
+            record(directory.resolve("7b4c5a-approved.json"), "DummyTestClass.otherTestMethod");
+
+            ApprovedFileIndex actual = read(directory);
+
+            assertThat(actual.getApprovedFileNames("DummyTestClass", "dummyTestMethod"), contains("11b2ef-1-approved.json", "11b2ef-approved.json"));
+            assertThat(actual.getApprovedFileNames("DummyTestClass", "missingTestMethod"), is(empty()));
+            assertThat(actual.getTestName("7b4c5a-approved.json"), is(Optional.of("DummyTestClass.otherTestMethod")));
+            assertThat(actual.getTestName("000000-approved.json"), is(Optional.empty()));
+        });
+    }
+
+    @Test
+    public void shouldReportStaleEntriesAndOrphanedFiles() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            writeFile(directory.resolve("11b2ef-approved.json"), "{}");
+            writeFile(directory.resolve("7b4c5a-approved.json"), "{}");
+            writeFile(directory.resolve("7b4c5a-not-approved.json"), "{}");
+            writeFile(directory.resolve("7b4c5a-approved.json-3f2a.tmp"), "{}");
+            writeFile(directory.resolve("e8a9b0-approved.txt"), "{}");
+            record(directory.resolve("11b2ef-approved.json"), "DummyTestClass.dummyTestMethod");
+            record(directory.resolve("d2e4f1-approved.json"), "DummyTestClass.removedTestMethod");
+
+            ApprovedFileIndex actual = read(directory);
+
+            assertThat(actual.getStaleFileNames(), contains("d2e4f1-approved.json"));
+            assertThat(actual.getOrphanedFileNames(), contains("7b4c5a-approved.json"));
+        });
+    }
+
+    @Test
+    public void shouldListApprovedFilesOfTheStore() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            writePacked(directory.resolve("11b2ef"), "DummyTestClass.dummyTestMethod");
+            writePacked(directory.resolve("7b4c5a"), "DummyTestClass.otherTestMethod");
+            record(directory.resolve("11b2ef-approved.json"), "DummyTestClass.dummyTestMethod");
+
+            ApprovedFileIndex actual = read(directory, PACKED_STORE);
+
+            assertThat(actual.getStaleFileNames(), is(empty()));
+            assertThat(actual.getOrphanedFileNames(), contains("7b4c5a-approved.json"));
+        });
+    }
+
+    @Test
+    public void shouldKeepEntriesRecordedByOtherProcesses() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            writeFile(directory.resolve(ApprovedFileIndex.INDEX_FILE_NAME), "7b4c5a-approved.json\tDummyTestClass.otherTestMethod\n");
+
+            record(directory.resolve("11b2ef-approved.json"), "DummyTestClass.dummyTestMethod");
+
+            ApprovedFileIndex actual = read(directory);
+            assertThat(actual.getTestName("7b4c5a-approved.json"), is(Optional.of("DummyTestClass.otherTestMethod")));
+            assertThat(actual.getTestName("11b2ef-approved.json"), is(Optional.of("DummyTestClass.dummyTestMethod")));
+        });
+    }
+
+    private static void record(Path approvedFile, String testName) {
+        try {
+            ApprovedFileIndex.record(FILE_STORE_MATCHER_UTILS, approvedFile, testName);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void writePacked(Path fileNameWithPath, String testName) {
+        try {
+            PACKED_STORE.overwrite(fileNameWithPath, ContentWriter.of("{}"), testName);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static ApprovedFileIndex read(Path directory) {
+        return read(directory, FILE_SYSTEM_STORE);
+    }
+
+    private static ApprovedFileIndex read(Path directory, ApprovalStore approvalStore) {
+        try {
+            return ApprovedFileIndex.read(directory, approvalStore);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.github.karsaig.approvalcrest.matcher.file;
+
+import static com.github.karsaig.approvalcrest.util.InMemoryFsUtil.inMemoryUnixFsWithFileAttributeSupport;
+import static com.github.karsaig.approvalcrest.util.InMemoryFsUtil.writeFile;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.karsaig.approvalcrest.FileMatcherConfig;
+
+/**
+ * Tests which verify {@link ContentAddressedApprovalStore} stores the content of identical approved files only once.
+ */
+public class ContentAddressedApprovalStoreTest {
+
+    private static final FileStoreMatcherUtils FILE_STORE_MATCHER_UTILS = new FileStoreMatcherUtils("json", new FileMatcherConfig());
+    private static final ContentAddressedApprovalStore UNDER_TEST = new ContentAddressedApprovalStore(FILE_STORE_MATCHER_UTILS);
+
+    @Test
+    public void shouldStoreIdenticalContentOnce() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            write(directory.resolve("11b2ef"), "{\"same\": true}");
+            write(directory.resolve("7b4c5a"), "{\"same\": true}");
+            write(directory.resolve("d2e4f1"), "{\"same\": false}");
+
+            assertThat(listFiles(directory.resolve(ContentAddressedApprovalStore.SHARED_DIRECTORY_NAME)).size(), is(2));
+            assertThat(read(directory.resolve("11b2ef")), is(Optional.of("{\"same\": true}")));
+            assertThat(read(directory.resolve("7b4c5a")), is(Optional.of("{\"same\": true}")));
+            assertThat(read(directory.resolve("d2e4f1")), is(Optional.of("{\"same\": false}")));
+            assertThat(read(directory.resolve("e8a9b0")), is(Optional.empty()));
+        });
+    }
+
+    @Test
+    public void shouldProcessSharedContentOnce() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            write(directory.resolve("11b2ef"), "{\"same\": true}");
+            write(directory.resolve("7b4c5a"), "{\"same\": true}");
+            AtomicInteger processed = new AtomicInteger();
+            Function<String, Object> processor = content -> {
+                processed.incrementAndGet();
+                return new Object();
+            };
+
+            Object first = read(directory.resolve("11b2ef"), processor);
+            Object second = read(directory.resolve("7b4c5a"), processor);
+
+            assertThat(second, sameInstance(first));
+            assertThat(processed.get(), is(1));
+        });
+    }
+
+    @Test
+    public void shouldReadApprovedFileWithContentWithoutSharingIt() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            writeFile(directory.resolve("11b2ef-approved.json"), "/*DummyTestClass.dummyTestMethod*/\n{}");
+
+            Optional<String> actual = read(directory.resolve("11b2ef"));
+
+            assertThat(actual, is(Optional.of("{}")));
+            assertThat(readFile(directory.resolve("11b2ef-approved.json")), is("/*DummyTestClass.dummyTestMethod*/\n{}"));
+            assertThat(listFiles(directory), contains("11b2ef-approved.json"));
+        });
+    }
+
+    @Test
+    public void shouldMoveContentOfApprovedFileToSharedContentWhenOverwritten() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            write(directory.resolve("7b4c5a"), "{}");
+            writeFile(directory.resolve("11b2ef-approved.json"), "/*DummyTestClass.dummyTestMethod*/\n{\"changed\": false}");
+
+            write(directory.resolve("11b2ef"), "{}");
+
+            assertThat(read(directory.resolve("11b2ef")), is(Optional.of("{}")));
+            assertThat(listFiles(directory.resolve(ContentAddressedApprovalStore.SHARED_DIRECTORY_NAME)).size(), is(1));
+            assertThat(readFile(directory.resolve("11b2ef-approved.json")), is(readFile(directory.resolve("7b4c5a-approved.json"))));
+            assertThat(listFiles(directory), contains("11b2ef-approved.json", "7b4c5a-approved.json", ContentAddressedApprovalStore.SHARED_DIRECTORY_NAME));
+        });
+    }
+
+    @Test
+    public void shouldShareApprovedFilesOfDirectory() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            write(directory.resolve("7b4c5a"), "{\"same\": true}");
+            writeFile(directory.resolve("11b2ef-approved.json"), "/*DummyTestClass.dummyTestMethod*/\n{\"same\": true}");
+            writeFile(directory.resolve("a3f9c1-approved.json"), "/*DummyTestClass.otherTestMethod*/\n{\"same\": false}");
+            writeFile(directory.resolve("d2e4f1-not-approved.json"), "/*DummyTestClass.newTestMethod*/\n{\"same\": true}");
+
+            Set<String> actual = share(directory);
+
+            assertThat(actual, contains("11b2ef-approved.json", "a3f9c1-approved.json"));
+            assertThat(listFiles(directory.resolve(ContentAddressedApprovalStore.SHARED_DIRECTORY_NAME)).size(), is(2));
+            assertThat(readFile(directory.resolve("11b2ef-approved.json")).startsWith("/*DummyTestClass.dummyTestMethod*/\n@approvalcrest-shared-content "), is(true));
+            assertThat(readFile(directory.resolve("d2e4f1-not-approved.json")), is("/*DummyTestClass.newTestMethod*/\n{\"same\": true}"));
+            assertThat(read(directory.resolve("11b2ef")), is(Optional.of("{\"same\": true}")));
+            assertThat(read(directory.resolve("a3f9c1")), is(Optional.of("{\"same\": false}")));
+            assertThat(read(directory.resolve("7b4c5a")), is(Optional.of("{\"same\": true}")));
+            assertThat(share(directory), is(empty()));
+        });
+    }
+
+    @Test
+    public void shouldNotResolveSharedContentWithFileSystemStore() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            write(directory.resolve("11b2ef"), "{\"same\": true}");
+            FileSystemApprovalStore fileSystemApprovalStore = new FileSystemApprovalStore(FILE_STORE_MATCHER_UTILS);
+
+            Optional<String> actual;
+            String reference;
+            try {
+                actual = fileSystemApprovalStore.read(directory.resolve("11b2ef"), Function.identity());
+                reference = FILE_STORE_MATCHER_UTILS.readFile(directory.resolve("11b2ef-approved.json"));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+
+            assertThat(actual, is(Optional.of(reference)));
+            assertThat(reference.startsWith("@approvalcrest-shared-content "), is(true));
+        });
+    }
+
+    private static void write(Path fileNameWithPath, String content) {
+        try {
+            UNDER_TEST.overwrite(fileNameWithPath, ContentWriter.of(content), "DummyTestClass.dummyTestMethod");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Optional<String> read(Path fileNameWithPath) {
+        try {
+            return UNDER_TEST.read(fileNameWithPath, Function.identity());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Object read(Path fileNameWithPath, Function<String, Object> processor) {
+        try {
+            return UNDER_TEST.read(fileNameWithPath, processor).get();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Set<String> share(Path directory) {
+        try {
+            return UNDER_TEST.share(directory);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String readFile(Path file) {
+        try {
+            return new String(Files.readAllBytes(file), UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static List<String> listFiles(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.github.karsaig.approvalcrest.matcher.file;
+
+import static com.github.karsaig.approvalcrest.util.InMemoryFsUtil.inMemoryUnixFsWithFileAttributeSupport;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.karsaig.approvalcrest.FileMatcherConfig;
+
+/**
+ * Tests which verify {@link FileStoreMatcherUtils} replaces the written files as a whole, without leaving temporary
+ * files behind, and serialises the writers of the same file within and across JVMs.
+ */
+public class FileStoreMatcherUtilsTest {
+
+    private static final FileStoreMatcherUtils UNDER_TEST = new FileStoreMatcherUtils("json", new FileMatcherConfig());
+    private static final int UPDATES_PER_WRITER = 25;
+
+    @Test
+    public void shouldCreateMissingDirectoriesForNotApprovedFile() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path fileNameWithPath = imfsi.getTestPath().resolve("4ac405").resolve("11b2ef");
+
+            String actual = createNotApproved(fileNameWithPath, "{}");
+
+            assertThat(actual, is("11b2ef-not-approved.json"));
+            assertThat(listFiles(imfsi.getTestPath()), contains("4ac405", "4ac405/11b2ef-not-approved.json"));
+            assertThat(readFile(fileNameWithPath.resolveSibling(actual)), is("{}"));
+        });
+    }
+
+    @Test
+    public void shouldReplaceApprovedFileContent() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path fileNameWithPath = imfsi.getTestPath().resolve("4ac405").resolve("11b2ef");
+            createNotApproved(fileNameWithPath, "{\"first\": \"a much longer content\"}");
+            move(UNDER_TEST.getFullFileName(fileNameWithPath, false), UNDER_TEST.getApproved(fileNameWithPath));
+
+            overwriteApprovedFile(fileNameWithPath, "{}");
+
+            assertThat(listFiles(imfsi.getTestPath()), contains("4ac405", "4ac405/11b2ef-approved.json"));
+            assertThat(readFile(UNDER_TEST.getApproved(fileNameWithPath)), is("{}"));
+        });
+    }
+
+    @Test
+    public void shouldNotLoseUpdatesOfConcurrentWritersInThisAndOtherJvms() throws Exception {
+        Path directory = Files.createTempDirectory("approvalcrest");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Path file = directory.resolve("counter-approved.json");
+            Process otherJvm = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-cp", System.getProperty("java.class.path"), ConcurrentWriter.class.getName(), file.toString())
+                    .inheritIO()
+                    .start();
+            List<Future<?>> writers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                writers.add(executor.submit(() -> appendLines(file)));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            assertThat(otherJvm.waitFor(1, TimeUnit.MINUTES), is(true));
+
+            assertThat(otherJvm.exitValue(), is(0));
+            assertThat(readFile(file).split("\n").length, is(5 * UPDATES_PER_WRITER));
+            assertThat(listFiles(directory), containsInAnyOrder("counter-approved.json", FileStoreMatcherUtils.LOCK_FILE_NAME));
+        } finally {
+            executor.shutdownNow();
+            deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    public void shouldShareLockFileBetweenFilesOfTheDirectory() throws IOException {
+        Path directory = Files.createTempDirectory("approvalcrest");
+        try {
+            for (int i = 0; i < 200; i++) {
+                overwriteApprovedFile(directory.resolve(String.valueOf(i)), "{}");
+            }
+
+            List<String> files = listFiles(directory);
+            assertThat(files.size(), is(201));
+            assertThat(files, hasItem(FileStoreMatcherUtils.LOCK_FILE_NAME));
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    public void shouldWriteFileLockedOnlyWithinTheJvmWhenLockFileCanNotBeOpened() throws IOException {
+        Path directory = Files.createTempDirectory("approvalcrest");
+        try {
+            Files.createDirectory(directory.resolve(FileStoreMatcherUtils.LOCK_FILE_NAME));
+            Path fileNameWithPath = directory.resolve("11b2ef");
+
+            overwriteApprovedFile(fileNameWithPath, "{}");
+
+            assertThat(readFile(UNDER_TEST.getApproved(fileNameWithPath)), is("{}"));
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static Void appendLines(Path file) throws IOException {
+        for (int i = 0; i < UPDATES_PER_WRITER; i++) {
+            UNDER_TEST.updateFile(file, current -> current + Thread.currentThread().getName() + "\n", "comment");
+        }
+        return null;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Updates the file from another JVM, concurrently with the writers of the test.
+     */
+    public static final class ConcurrentWriter {
+        public static void main(String[] args) throws IOException {
+            appendLines(Paths.get(args[0]));
+        }
+    }
+
+    private static String createNotApproved(Path fileNameWithPath, String content) {
+        try {
+            return UNDER_TEST.createNotApproved(fileNameWithPath, content, "comment");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void overwriteApprovedFile(Path fileNameWithPath, String content) {
+        try {
+            UNDER_TEST.overwriteApprovedFile(fileNameWithPath, content, "comment");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String readFile(Path file) {
+        try {
+            return UNDER_TEST.readFile(file);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void move(Path from, Path to) {
+        try {
+            Files.move(from, to);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static List<String> listFiles(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(file -> !file.equals(directory))
+                    .map(file -> directory.relativize(file).toString())
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.github.karsaig.approvalcrest.matcher.file;
+
+import static com.github.karsaig.approvalcrest.util.InMemoryFsUtil.inMemoryUnixFsWithFileAttributeSupport;
+import static com.github.karsaig.approvalcrest.util.InMemoryFsUtil.writeFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.karsaig.approvalcrest.FileMatcherConfig;
+
+/**
+ * Tests which verify {@link InMemoryApprovalStore} reads the files from its base store, and keeps the written files in
+ * memory.
+ */
+public class InMemoryApprovalStoreTest {
+
+    private static final FileStoreMatcherUtils FILE_STORE_MATCHER_UTILS = new FileStoreMatcherUtils("json", new FileMatcherConfig());
+
+    @Test
+    public void shouldReadApprovedFilesFromBaseStore() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            writeFile(directory.resolve("11b2ef-approved.json"), "/*DummyTestClass.dummyTestMethod*/\n{}");
+            InMemoryApprovalStore underTest = new InMemoryApprovalStore(new FileSystemApprovalStore(FILE_STORE_MATCHER_UTILS), FILE_STORE_MATCHER_UTILS);
+
+            assertThat(exists(underTest, directory.resolve("11b2ef")), is(true));
+            assertThat(exists(underTest, directory.resolve("7b4c5a")), is(false));
+            assertThat(read(underTest, directory.resolve("11b2ef")), is(Optional.of("{}")));
+            assertThat(read(underTest, directory.resolve("7b4c5a")), is(Optional.empty()));
+        });
+    }
+
+    @Test
+    public void shouldNotWriteFilesOfBaseStore() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            writeFile(directory.resolve("11b2ef-approved.json"), "{}");
+            InMemoryApprovalStore underTest = new InMemoryApprovalStore(new FileSystemApprovalStore(FILE_STORE_MATCHER_UTILS), FILE_STORE_MATCHER_UTILS);
+
+            overwrite(underTest, directory.resolve("11b2ef"), "{\"changed\": true}");
+            String created = createNotApproved(underTest, directory.resolve("7b4c5a"), "{\"created\": true}");
+
+            assertThat(created, is("7b4c5a-not-approved.json"));
+            assertThat(read(underTest, directory.resolve("11b2ef")), is(Optional.of("{\"changed\": true}")));
+            assertThat(underTest.getWrittenFiles().get(directory.resolve("7b4c5a-not-approved.json").toAbsolutePath()), is("{\"created\": true}"));
+            assertThat(readFile(directory.resolve("11b2ef-approved.json")), is("{}"));
+            assertThat(Files.exists(directory.resolve("7b4c5a-not-approved.json")), is(false));
+        });
+    }
+
+    @Test
+    public void shouldNotChangeFilesOfPackedBaseStore() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            PackedApprovalStore base = new PackedApprovalStore(FILE_STORE_MATCHER_UTILS);
+            overwrite(base, directory.resolve("7b4c5a"), "{\"packed\": true}");
+            writeFile(directory.resolve("11b2ef-approved.json"), "/*DummyTestClass.dummyTestMethod*/\n{\"loose\": true}");
+            Map<String, String> files = readFiles(directory);
+            InMemoryApprovalStore underTest = new InMemoryApprovalStore(base, FILE_STORE_MATCHER_UTILS);
+
+            assertThat(read(underTest, directory.resolve("11b2ef")), is(Optional.of("{\"loose\": true}")));
+            assertThat(read(underTest, directory.resolve("7b4c5a")), is(Optional.of("{\"packed\": true}")));
+            overwrite(underTest, directory.resolve("11b2ef"), "{\"changed\": true}");
+            overwrite(underTest, directory.resolve("7b4c5a"), "{\"changed\": true}");
+            createNotApproved(underTest, directory.resolve("d2e4f1"), "{}");
+
+            assertThat(readFiles(directory), is(files));
+        });
+    }
+
+    @Test
+    public void shouldNotChangeFilesOfSharedContentBaseStore() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            ContentAddressedApprovalStore base = new ContentAddressedApprovalStore(FILE_STORE_MATCHER_UTILS);
+            overwrite(base, directory.resolve("7b4c5a"), "{\"shared\": true}");
+            writeFile(directory.resolve("11b2ef-approved.json"), "/*DummyTestClass.dummyTestMethod*/\n{\"loose\": true}");
+            Map<String, String> files = readFiles(directory);
+            InMemoryApprovalStore underTest = new InMemoryApprovalStore(base, FILE_STORE_MATCHER_UTILS);
+
+            assertThat(read(underTest, directory.resolve("11b2ef")), is(Optional.of("{\"loose\": true}")));
+            assertThat(read(underTest, directory.resolve("7b4c5a")), is(Optional.of("{\"shared\": true}")));
+            overwrite(underTest, directory.resolve("11b2ef"), "{\"changed\": true}");
+            createNotApproved(underTest, directory.resolve("d2e4f1"), "{}");
+
+            assertThat(readFiles(directory), is(files));
+        });
+    }
+
+    @Test
+    public void shouldListApprovedFilesOfBaseStoreAndMemory() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            writeFile(directory.resolve("11b2ef-approved.json"), "{}");
+            writeFile(directory.resolve("d2e4f1-not-approved.json"), "{}");
+            InMemoryApprovalStore underTest = new InMemoryApprovalStore(new FileSystemApprovalStore(FILE_STORE_MATCHER_UTILS), FILE_STORE_MATCHER_UTILS);
+
+            overwrite(underTest, directory.resolve("7b4c5a"), "{}");
+            createNotApproved(underTest, directory.resolve("e8a9b0"), "{}");
+
+            assertThat(list(underTest, directory), contains("11b2ef-approved.json", "7b4c5a-approved.json"));
+        });
+    }
+
+    private static boolean exists(ApprovalStore approvalStore, Path fileNameWithPath) {
+        try {
+            return approvalStore.exists(fileNameWithPath);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Optional<String> read(ApprovalStore approvalStore, Path fileNameWithPath) {
+        try {
+            return approvalStore.read(fileNameWithPath, Function.identity());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void overwrite(ApprovalStore approvalStore, Path fileNameWithPath, String content) {
+        try {
+            approvalStore.overwrite(fileNameWithPath, ContentWriter.of(content), "DummyTestClass.dummyTestMethod");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String createNotApproved(ApprovalStore approvalStore, Path fileNameWithPath, String content) {
+        try {
+            return approvalStore.createNotApproved(fileNameWithPath, ContentWriter.of(content), "DummyTestClass.dummyTestMethod");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Set<String> list(ApprovalStore approvalStore, Path directory) {
+        try {
+            return approvalStore.list(directory);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Map<String, String> readFiles(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .collect(Collectors.toMap(file -> directory.relativize(file).toString(), InMemoryApprovalStoreTest::readFile));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String readFile(Path file) {
+        try {
+            return new String(Files.readAllBytes(file));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
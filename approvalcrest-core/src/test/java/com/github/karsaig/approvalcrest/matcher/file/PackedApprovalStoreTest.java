@@ -0,0 +1,170 @@
+package com.github.karsaig.approvalcrest.matcher.file;
+
+import static com.github.karsaig.approvalcrest.util.InMemoryFsUtil.inMemoryUnixFsWithFileAttributeSupport;
+import static com.github.karsaig.approvalcrest.util.InMemoryFsUtil.writeFile;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.karsaig.approvalcrest.FileMatcherConfig;
+
+/**
+ * Tests which verify {@link PackedApprovalStore} keeps the approved files of a directory in a single pack file.
+ */
+public class PackedApprovalStoreTest {
+
+    private static final PackedApprovalStore UNDER_TEST = new PackedApprovalStore(new FileStoreMatcherUtils("json", new FileMatcherConfig()));
+
+    @Test
+    public void shouldReadEveryApprovedFileFromOnePack() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            write(directory.resolve("11b2ef"), "{\"first\": 1}");
+            write(directory.resolve("7b4c5a"), "{\"second\": \"\u00e1rv\u00edzt\u0171r\u0151\"}");
+            write(directory.resolve("11b2ef"), "{\"first\": 2}");
+
+            assertThat(listFiles(directory), contains(PackedApprovalStore.PACK_FILE_NAME));
+            assertThat(read(directory.resolve("11b2ef")), is(Optional.of("{\"first\": 2}")));
+            assertThat(read(directory.resolve("7b4c5a")), is(Optional.of("{\"second\": \"\u00e1rv\u00edzt\u0171r\u0151\"}")));
+            assertThat(read(directory.resolve("d2e4f1")), is(Optional.empty()));
+        });
+    }
+
+    @Test
+    public void shouldCompactRewrittenPack() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            StringBuilder content = new StringBuilder();
+            for (int i = 0; i < 1000; i++) {
+                content.append("0123456789");
+            }
+            write(directory.resolve("7b4c5a"), "unchanged");
+            for (int i = 0; i < 100; i++) {
+                write(directory.resolve("11b2ef"), i + content.toString());
+            }
+
+            assertThat(size(directory.resolve(PackedApprovalStore.PACK_FILE_NAME)), lessThan(100L * 1024));
+            assertThat(read(directory.resolve("11b2ef")), is(Optional.of(99 + content.toString())));
+            assertThat(read(directory.resolve("7b4c5a")), is(Optional.of("unchanged")));
+        });
+    }
+
+    @Test
+    public void shouldReadLooseApprovedFileWithoutMovingIt() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            write(directory.resolve("7b4c5a"), "packed");
+            write(directory.resolve("11b2ef"), "replaced");
+            writeFile(directory.resolve("11b2ef-approved.json"), "/*DummyTestClass.dummyTestMethod*/\nloose");
+            long packSize = size(directory.resolve(PackedApprovalStore.PACK_FILE_NAME));
+
+            Optional<String> actual = read(directory.resolve("11b2ef"));
+
+            assertThat(actual, is(Optional.of("loose")));
+            assertThat(listFiles(directory), contains("11b2ef-approved.json", PackedApprovalStore.PACK_FILE_NAME));
+            assertThat(size(directory.resolve(PackedApprovalStore.PACK_FILE_NAME)), is(packSize));
+            assertThat(read(directory.resolve("7b4c5a")), is(Optional.of("packed")));
+        });
+    }
+
+    @Test
+    public void shouldMoveLooseApprovedFileIntoPackWhenOverwritten() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            writeFile(directory.resolve("11b2ef-approved.json"), "/*DummyTestClass.dummyTestMethod*/\nloose");
+            read(directory.resolve("11b2ef"));
+
+            write(directory.resolve("11b2ef"), "overwritten");
+
+            assertThat(listFiles(directory), contains(PackedApprovalStore.PACK_FILE_NAME));
+            assertThat(read(directory.resolve("11b2ef")), is(Optional.of("overwritten")));
+        });
+    }
+
+    @Test
+    public void shouldPackLooseApprovedFilesOfDirectory() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            write(directory.resolve("7b4c5a"), "packed");
+            writeFile(directory.resolve("11b2ef-approved.json"), "/*DummyTestClass.dummyTestMethod*/\nfirst");
+            writeFile(directory.resolve("a3f9c1-approved.json"), "/*DummyTestClass.otherTestMethod*/\nsecond");
+            writeFile(directory.resolve("d2e4f1-not-approved.json"), "/*DummyTestClass.newTestMethod*/\nnot approved");
+
+            Set<String> actual = pack(directory);
+
+            assertThat(actual, contains("11b2ef-approved.json", "a3f9c1-approved.json"));
+            assertThat(listFiles(directory), contains(PackedApprovalStore.PACK_FILE_NAME, "d2e4f1-not-approved.json"));
+            assertThat(read(directory.resolve("11b2ef")), is(Optional.of("first")));
+            assertThat(read(directory.resolve("a3f9c1")), is(Optional.of("second")));
+            assertThat(read(directory.resolve("7b4c5a")), is(Optional.of("packed")));
+            assertThat(pack(directory), is(empty()));
+        });
+    }
+
+    @Test
+    public void shouldCreatePackForDirectoryOfLooseApprovedFiles() {
+        inMemoryUnixFsWithFileAttributeSupport(imfsi -> {
+            Path directory = imfsi.getTestPath().resolve("4ac405");
+            writeFile(directory.resolve("11b2ef-approved.json"), "/*DummyTestClass.dummyTestMethod*/\nloose");
+
+            pack(directory);
+
+            assertThat(listFiles(directory), contains(PackedApprovalStore.PACK_FILE_NAME));
+            assertThat(read(directory.resolve("11b2ef")), is(Optional.of("loose")));
+        });
+    }
+
+    private static Set<String> pack(Path directory) {
+        try {
+            return UNDER_TEST.pack(directory);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void write(Path fileNameWithPath, String content) {
+        try {
+            UNDER_TEST.overwrite(fileNameWithPath, ContentWriter.of(content), "DummyTestClass.dummyTestMethod");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Optional<String> read(Path fileNameWithPath) {
+        try {
+            return UNDER_TEST.read(fileNameWithPath, Function.identity());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static List<String> listFiles(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
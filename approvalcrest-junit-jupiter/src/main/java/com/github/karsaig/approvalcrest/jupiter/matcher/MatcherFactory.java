@@ -4,6 +4,7 @@ import com.github.karsaig.approvalcrest.FileMatcherConfig;
 import com.github.karsaig.approvalcrest.matcher.ContentMatcher;
 import com.github.karsaig.approvalcrest.matcher.DiagnosingCustomisableMatcher;
 import com.github.karsaig.approvalcrest.matcher.JsonMatcher;
+import com.github.karsaig.approvalcrest.matcher.MatcherSpec;
 import com.github.karsaig.approvalcrest.matcher.TestMetaInformation;
 
 class MatcherFactory extends com.github.karsaig.approvalcrest.matcher.MatcherFactory {
@@ -18,6 +19,11 @@ class MatcherFactory extends com.github.karsaig.approvalcrest.matcher.MatcherFac
         return super.jsonMatcher(testMetaInformation, fileMatcherConfig);
     }
 
+    @Override
+    protected <T> JsonMatcher<T> jsonMatcher(TestMetaInformation testMetaInformation, FileMatcherConfig fileMatcherConfig, MatcherSpec spec) {
+        return super.jsonMatcher(testMetaInformation, fileMatcherConfig, spec);
+    }
+
     @Override
     protected <T> ContentMatcher<T> contentMatcher(TestMetaInformation testMetaInformation, FileMatcherConfig fileMatcherConfig) {
         return super.contentMatcher(testMetaInformation, fileMatcherConfig);
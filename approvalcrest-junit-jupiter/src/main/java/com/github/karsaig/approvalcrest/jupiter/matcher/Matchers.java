@@ -15,6 +15,7 @@ import com.github.karsaig.approvalcrest.matcher.ContentMatcher;
 import com.github.karsaig.approvalcrest.matcher.DiagnosingCustomisableMatcher;
 import com.github.karsaig.approvalcrest.matcher.IsEqualMatcher;
 import com.github.karsaig.approvalcrest.matcher.JsonMatcher;
+import com.github.karsaig.approvalcrest.matcher.MatcherSpec;
 import com.github.karsaig.approvalcrest.matcher.NullMatcher;
 import com.github.karsaig.approvalcrest.matcher.TestMetaInformation;
 
@@ -85,6 +86,34 @@ public class Matchers {
     }
 
 
+    /**
+     * Returns a {@link JsonMatcher} for matching an object with a generated
+     * file, configured by a {@link MatcherSpec} shared between tests.
+     *
+     * @param spec the compiled matcher configuration
+     * @param <T>  Type of object to serialize to JSON
+     * @return a new {@link JsonMatcher} instance
+     */
+    public static <T> JsonMatcher<T> sameJsonAsApproved(MatcherSpec spec) {
+        return INSTANCE.sameJsonAsApproved(spec);
+    }
+
+
+    /**
+     * Returns a {@link JsonMatcher} for matching an object with a generated
+     * file, configured by a {@link MatcherSpec} shared between tests.
+     * Should be used for cases when the default implementation of {@link TestMetaInformation} doesn't work for any reason.
+     *
+     * @param testInfo JUnit5 provided test information. {@link TestInfo}.
+     * @param spec     the compiled matcher configuration
+     * @param <T>      Type of object to serialize to JSON
+     * @return a new {@link JsonMatcher} instance
+     */
+    public static <T> JsonMatcher<T> sameJsonAsApproved(TestInfo testInfo, MatcherSpec spec) {
+        return INSTANCE.sameJsonAsApproved(testInfo, spec);
+    }
+
+
     /**
      * Returns a {@link ContentMatcher} for matching a string with a generated file.
      *
@@ -12,6 +12,7 @@ import com.github.karsaig.approvalcrest.jupiter.JunitJupiterTestMeta;
 import com.github.karsaig.approvalcrest.matcher.ContentMatcher;
 import com.github.karsaig.approvalcrest.matcher.DiagnosingCustomisableMatcher;
 import com.github.karsaig.approvalcrest.matcher.JsonMatcher;
+import com.github.karsaig.approvalcrest.matcher.MatcherSpec;
 import com.github.karsaig.approvalcrest.matcher.TestMetaInformation;
 
 public class MatchersImpl {
@@ -44,6 +45,16 @@ public class MatchersImpl {
                 .orElse(MATCHER_FACTORY.jsonMatcher(getTestMetaInformation(testInfo), new FileMatcherConfig()));
     }
 
+    public <T> JsonMatcher<T> sameJsonAsApproved(MatcherSpec spec) {
+        return MATCHER_FACTORY.jsonMatcher(getTestMetaInformation(), new FileMatcherConfig(), spec);
+    }
+
+    public <T> JsonMatcher<T> sameJsonAsApproved(TestInfo testInfo, MatcherSpec spec) {
+        return getUniqueIndex(testInfo)
+                .map(s -> MATCHER_FACTORY.<T>jsonMatcher(getTestMetaInformation(testInfo), new FileMatcherConfig(), spec).withUniqueId(s))
+                .orElse(MATCHER_FACTORY.jsonMatcher(getTestMetaInformation(testInfo), new FileMatcherConfig(), spec));
+    }
+
     public <T> ContentMatcher<T> sameContentAsApproved() {
         return Matchers.sameContentAsApproved(getTestMetaInformation());
     }
@@ -60,6 +60,18 @@ public class Matchers {
         return sameJsonAsApproved(new Junit4DescriptionBasedTestMeta(description));
     }
 
+    /**
+     * Returns a {@link JsonMatcher} for matching an object with a generated
+     * file, configured by a {@link MatcherSpec} shared between tests.
+     *
+     * @param spec the compiled matcher configuration
+     * @param <T>  Type of object to serialize to JSON
+     * @return a new {@link JsonMatcher} instance
+     */
+    public static <T> JsonMatcher<T> sameJsonAsApproved(MatcherSpec spec) {
+        return MATCHER_FACTORY.jsonMatcher(new Junit4TestMeta(), new FileMatcherConfig(), spec);
+    }
+
     /**
      * Returns a {@link JsonMatcher} for matching an object with a generated
      * file.